@@ -0,0 +1,28 @@
+package com.fisherevans.chess;
+
+/**
+ * The fixed set of positions every benchmark runs over, so numbers stay comparable between
+ * releases. Opening, middlegame and endgame positions are all represented.
+ */
+public final class BenchmarkPositions {
+    public static final String[] FENS = {
+            Fen.DEFAULT,
+            "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 2 3",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w - - 1 8",
+            "2kr3r/pp1q1ppp/2n1bn2/2bpp3/4P3/2NP1N2/PPPBBPPP/R2QK2R b - - 0 9",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "7k/7r/7r/7r/8/7r/8/K7 b - - 0 1",
+    };
+
+    private BenchmarkPositions() {
+    }
+
+    public static Board[] boards() {
+        Board[] boards = new Board[FENS.length];
+        for(int id = 0;id < FENS.length;id++)
+            boards[id] = Fen.parse(FENS[id]);
+        return boards;
+    }
+}
@@ -0,0 +1,76 @@
+package com.fisherevans.chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board hot paths, each measured as one pass over every corpus position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BoardBenchmark {
+    @State(Scope.Thread)
+    public static class Positions {
+        public Board[] boards;
+
+        @Setup
+        public void setup() {
+            boards = BenchmarkPositions.boards();
+        }
+    }
+
+    /**
+     * The corpus plus a reused move list, once with and once without the legality check.
+     */
+    @State(Scope.Thread)
+    public static class Generation extends Positions {
+        @Param({"true", "false"})
+        public boolean checkForCheck;
+
+        public final MoveList moves = new MoveList();
+    }
+
+    @Benchmark
+    public void getAvailableMoves(Generation state, Blackhole blackhole) {
+        for(Board board:state.boards)
+            blackhole.consume(board.getAvailableMoves(board.getTurn(), state.checkForCheck));
+    }
+
+    @Benchmark
+    public void generateMoves(Generation state, Blackhole blackhole) {
+        MoveList moves = state.moves;
+        for(Board board:state.boards) {
+            moves.clear();
+            blackhole.consume(board.generateMoves(board.getTurn(), state.checkForCheck, moves));
+        }
+    }
+
+    @Benchmark
+    public void isChecked(Positions state, Blackhole blackhole) {
+        for(Board board:state.boards) {
+            blackhole.consume(board.isChecked(Piece.Color.WHITE));
+            blackhole.consume(board.isChecked(Piece.Color.BLACK));
+        }
+    }
+
+    @Benchmark
+    public void copy(Positions state, Blackhole blackhole) {
+        for(Board board:state.boards)
+            blackhole.consume(board.copy());
+    }
+}
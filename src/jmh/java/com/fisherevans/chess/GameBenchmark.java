@@ -0,0 +1,46 @@
+package com.fisherevans.chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole games through ChessGame.playOne. Players are seeded from a counter, so every run plays
+ * the same sequence of games.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class GameBenchmark {
+    @Param({"dummy", "greedy"})
+    public String white;
+
+    @Param({"dummy", "greedy"})
+    public String black;
+
+    private long seed;
+
+    @Benchmark
+    public void playOne(Blackhole blackhole) {
+        seed++;
+        blackhole.consume(ChessGame.playOne(player(white, seed), player(black, ~seed)));
+    }
+
+    private static GameIntelligence player(String name, long seed) {
+        return name.equals("dummy") ? GameIntelligence.dummy(new Random(seed)) : GameIntelligence.greedy(new Random(seed));
+    }
+}
@@ -0,0 +1,74 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Type;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per piece move generation, over every piece of the given type in the corpus. Measures both
+ * the Position set view (MoveManager.function) and the raw bitboard lookup behind it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class MoveManagerBenchmark {
+    @Param({"PAWN", "ROOK", "KNIGHT", "BISHOP", "QUEEN", "KING"})
+    public String type;
+
+    private Board[] boards;
+    private int[] squares;
+    private int[] boardIds;
+
+    @Setup
+    public void setup() {
+        boards = BenchmarkPositions.boards();
+        Type type = Type.valueOf(this.type);
+        List<int[]> found = new ArrayList<>();
+        for(int id = 0;id < boards.length;id++)
+            for(int square = 0;square < Bitboards.SQUARES;square++)
+                if(boards[id].getPiece(square) != null && boards[id].getPiece(square).type == type)
+                    found.add(new int[] { id, square });
+        squares = new int[found.size()];
+        boardIds = new int[found.size()];
+        for(int id = 0;id < found.size();id++) {
+            boardIds[id] = found.get(id)[0];
+            squares[id] = found.get(id)[1];
+        }
+    }
+
+    @Benchmark
+    public void function(Blackhole blackhole) {
+        for(int id = 0;id < squares.length;id++) {
+            Board board = boards[boardIds[id]];
+            Piece piece = board.getPiece(squares[id]);
+            blackhole.consume(MoveManager.function(piece).calc(Position.of(squares[id]), board::getPiece));
+        }
+    }
+
+    @Benchmark
+    public void targets(Blackhole blackhole) {
+        for(int id = 0;id < squares.length;id++) {
+            Board board = boards[boardIds[id]];
+            Piece piece = board.getPiece(squares[id]);
+            long own = board.getOccupancy(piece.color);
+            blackhole.consume(MoveManager.targets(piece, squares[id], own, board.getOccupied() & ~own));
+        }
+    }
+}
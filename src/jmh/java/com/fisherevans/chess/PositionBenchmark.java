@@ -0,0 +1,38 @@
+package com.fisherevans.chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class PositionBenchmark {
+    private String[] encoded;
+
+    @Setup
+    public void setup() {
+        encoded = new String[Bitboards.SQUARES];
+        for(int square = 0;square < Bitboards.SQUARES;square++)
+            encoded[square] = Position.of(square).toString();
+    }
+
+    @Benchmark
+    public void fromString(Blackhole blackhole) {
+        for(String position:encoded)
+            blackhole.consume(Position.fromString(position));
+    }
+}
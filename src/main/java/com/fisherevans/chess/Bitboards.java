@@ -0,0 +1,45 @@
+package com.fisherevans.chess;
+
+/**
+ * Square and bit helpers shared by the bitboard backed {@link Board}. Squares are
+ * numbered 0 (a1) to 63 (h8), rank by rank, so bit n of a long is square n.
+ */
+public final class Bitboards {
+    public static final int SQUARES = 64;
+    public static final long EMPTY = 0L;
+
+    private Bitboards() {
+    }
+
+    public static int square(int x, int y) {
+        return (y << 3) | x;
+    }
+
+    public static int square(Position position) {
+        return position.index;
+    }
+
+    public static int x(int square) {
+        return square & 7;
+    }
+
+    public static int y(int square) {
+        return square >>> 3;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean isSet(long bitboard, int square) {
+        return (bitboard & bit(square)) != 0;
+    }
+
+    public static int lowest(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+}
@@ -3,87 +3,383 @@ package com.fisherevans.chess;
 import com.fisherevans.chess.Piece.Color;
 import com.fisherevans.chess.Piece.Type;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 
 /**
  * Created by fisher.evans on 1/7/16.
  */
 public class Board implements Serializable {
-    private final Map<Position, Piece> pieces;
+    private static final int INITIAL_UNDO_CAPACITY = 128;
+    // cheapest first, the order in which an exchange brings in attackers
+    private static final Type[] EXCHANGE_ORDER = { Type.PAWN, Type.KNIGHT, Type.BISHOP, Type.ROOK, Type.QUEEN, Type.KING };
+
+    private final long[] bitboards;
+    private final long[] colors;
+    private long occupied;
+    private final Piece[] squares;
+    private int[] undo;
+    private int undoSize;
+    private Color turn;
+    private long hash;
+    // material and piece-square sums, white positive, see Evaluation
+    private int middlegame;
+    private int endgame;
+    private int phase;
+    // scratch space for see, one gain per capture in the exchange
+    private final int[] gain = new int[Bitboards.SQUARES / 2];
 
     public Board(Map<Position, Piece> pieces) {
-        this.pieces = pieces;
+        this();
+        for(Map.Entry<Position, Piece> entry:pieces.entrySet())
+            put(Bitboards.square(entry.getKey()), entry.getValue());
     }
 
     public Board() {
-        this(new HashMap<>());
+        bitboards = new long[Piece.COUNT];
+        colors = new long[Color.values().length];
+        occupied = Bitboards.EMPTY;
+        squares = new Piece[Bitboards.SQUARES];
+        undo = new int[INITIAL_UNDO_CAPACITY];
+        turn = Color.WHITE;
+        hash = Bitboards.EMPTY;
+    }
+
+    private Board(Board source) {
+        bitboards = source.bitboards.clone();
+        colors = source.colors.clone();
+        occupied = source.occupied;
+        squares = source.squares.clone();
+        undo = source.undo.clone();
+        undoSize = source.undoSize;
+        turn = source.turn;
+        hash = source.hash;
+        middlegame = source.middlegame;
+        endgame = source.endgame;
+        phase = source.phase;
     }
 
     public void applyMove(final Move move) throws Exception {
-        Piece fromPiece = pieces.get(move.from);
+        int from = Bitboards.square(move.from);
+        int to = Bitboards.square(move.to);
+        Piece fromPiece = squares[from];
         if(fromPiece == null)
             throw new Exception("Must move a piece!");
-        if(false == MoveManager.function(fromPiece).calc(move.from, p -> pieces.get(p)).contains(move.to))
+        long own = colors[fromPiece.color.ordinal()];
+        if(false == Bitboards.isSet(MoveManager.targets(fromPiece, from, own, occupied & ~own), to))
             throw new Exception("Invalid move, to destination is not valid!");
-        Piece toPiece = pieces.get(move.to);
+        Piece toPiece = squares[to];
         if(toPiece != null && toPiece.color == fromPiece.color)
             throw new Exception("You cannot take your own piece!");
-        pieces.remove(move.from);
-        pieces.put(move.to, fromPiece);
+        makeMove(move);
+    }
+
+    public void makeMove(final Move move) {
+        makeMove(Move.pack(Bitboards.square(move.from), Bitboards.square(move.to), move.piece, move.captured));
+    }
+
+    /**
+     * Plays a packed move without validating it, so it must come from generateMoves or
+     * getAvailableMoves. The board can be put back exactly as it was with unmakeMove.
+     */
+    public void makeMove(final int move) {
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        Piece captured = squares[to];
+        if(undoSize == undo.length)
+            undo = Arrays.copyOf(undo, undo.length * 2);
+        // from | to | captured+1 (0 when nothing was taken) | black was to move
+        undo[undoSize++] = from | (to << 6) | ((captured == null ? 0 : captured.index + 1) << 12)
+                | (turn == Color.BLACK ? 1 << 16 : 0);
+        if(captured != null)
+            remove(to);
+        Piece piece = remove(from);
+        put(to, piece);
+        setTurn(piece.color.opposite());
+        assert hash == Zobrist.hash(this) : "Incremental hash is wrong after makeMove";
+        assert evaluate(Color.WHITE) == Evaluation.evaluate(this, Color.WHITE) : "Incremental evaluation is wrong after makeMove";
+    }
+
+    /**
+     * Takes back the last move played with makeMove or applyMove.
+     */
+    public void unmakeMove() {
+        if(undoSize == 0)
+            throw new RuntimeException("There are no moves to take back!");
+        int record = undo[--undoSize];
+        int from = record & 0x3F;
+        int to = (record >>> 6) & 0x3F;
+        int captured = (record >>> 12) & 0xF;
+        put(from, remove(to));
+        if(captured != 0)
+            put(to, Piece.fromIndex(captured - 1));
+        setTurn((record & (1 << 16)) != 0 ? Color.BLACK : Color.WHITE);
+        assert hash == Zobrist.hash(this) : "Incremental hash is wrong after unmakeMove";
+        assert evaluate(Color.WHITE) == Evaluation.evaluate(this, Color.WHITE) : "Incremental evaluation is wrong after unmakeMove";
+    }
+
+    /**
+     * The color expected to move next. Starts as white and flips to the other side of whoever
+     * last moved.
+     */
+    public Color getTurn() {
+        return turn;
+    }
+
+    public void setTurn(Color turn) {
+        if(this.turn != turn)
+            hash ^= Zobrist.BLACK_TO_MOVE;
+        this.turn = turn;
+    }
+
+    /**
+     * Zobrist key of the pieces and the side to move, kept up to date by every change to the board.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Static evaluation in centipawns from color's point of view: material plus piece-square
+     * tables, tapered by phase. Kept up to date by every change to the board, so this is cheap.
+     */
+    public int evaluate(Color color) {
+        return Evaluation.taper(middlegame, endgame, phase, color);
     }
 
     public boolean isChecked(Color color) {
-        final Set<Move> availableMoves = getAvailableMoves(color.opposite(), false);
-        for(Move move:availableMoves)
-            if(move.captured != null && move.captured.color == color && move.captured.type == Type.KING)
-                return true;
-        return false;
+        long king = bitboards[Piece.index(color, Type.KING)];
+        return king != Bitboards.EMPTY && isSquareAttacked(Bitboards.lowest(king), color.opposite());
     }
 
-    public Set<Move> getAvailableMoves(Color color, boolean checkForCheck) {
-        Set<Move> availableMoves = new HashSet();
-        for(Map.Entry<Position, Piece> entry:pieces.entrySet()) {
-            Position from = entry.getKey();
-            Piece piece = entry.getValue();
-            if(piece.color == color) {
-                for (Position to : MoveManager.function(piece).calc(from, p -> pieces.get(p))) {
-                    Move move = new Move(from, to, piece, pieces.get(to));
-                    if(checkForCheck) {
-                        Board copy = copy();
-                        try {
-                            copy.applyMove(move);
-                        } catch (Exception e) {
-                            throw new RuntimeException("This shouldn't happen", e);
-                        }
-                        if(false == copy.isChecked(color)) {
-                            availableMoves.add(move);
-                        }
-                    } else {
-                        availableMoves.add(move);
-                    }
+    public boolean isSquareAttacked(Position square, Color byColor) {
+        return isSquareAttacked(Bitboards.square(square), byColor);
+    }
+
+    /**
+     * Looks outward from the square for a piece of byColor that could capture on it, cheapest
+     * lookups first, and stops at the first one found.
+     */
+    public boolean isSquareAttacked(int square, Color byColor) {
+        return isSquareAttacked(square, byColor, occupied);
+    }
+
+    /**
+     * Every piece of byColor attacking the square, with sliders blocked by occupied.
+     */
+    public long attackersOf(int square, Color byColor, long occupied) {
+        long queens = bitboards[Piece.index(byColor, Type.QUEEN)];
+        return (MoveManager.knightAttacks(square) & bitboards[Piece.index(byColor, Type.KNIGHT)])
+                | (MoveManager.pawnAttacks(byColor.opposite(), square) & bitboards[Piece.index(byColor, Type.PAWN)])
+                | (MoveManager.kingAttacks(square) & bitboards[Piece.index(byColor, Type.KING)])
+                | (MoveManager.rookAttacks(square, occupied) & (bitboards[Piece.index(byColor, Type.ROOK)] | queens))
+                | (MoveManager.bishopAttacks(square, occupied) & (bitboards[Piece.index(byColor, Type.BISHOP)] | queens));
+    }
+
+    /**
+     * Static exchange evaluation: what the mover expects to gain in centipawns (see
+     * Evaluation.value) if both sides keep recapturing on the move's target square with their
+     * cheapest attacker, each stopping once carrying on would lose. Pieces behind a capturer
+     * join in as it leaves. Pins are ignored.
+     */
+    public int see(int move) {
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        Piece captured = squares[to];
+        gain[0] = captured == null ? 0 : Evaluation.value(captured.type);
+        Piece attacker = squares[from];
+        Color side = attacker.color;
+        long remaining = occupied;
+        int depth = 0;
+        while(true) {
+            remaining &= ~Bitboards.bit(from);
+            side = side.opposite();
+            depth++;
+            // taking the attacker, were the next side to do so and it was never recaptured
+            gain[depth] = Evaluation.value(attacker.type) - gain[depth - 1];
+            if(Math.max(-gain[depth - 1], gain[depth]) < 0)
+                break;
+            long attackers = attackersOf(to, side, remaining) & remaining;
+            if(attackers == Bitboards.EMPTY)
+                break;
+            for(Type type:EXCHANGE_ORDER) {
+                long pieces = attackers & bitboards[Piece.index(side, type)];
+                if(pieces != Bitboards.EMPTY) {
+                    from = Bitboards.lowest(pieces);
+                    attacker = squares[from];
+                    break;
                 }
             }
         }
+        // the last capture listed never happens; from there back, each side may decline
+        while(--depth > 0)
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        return gain[0];
+    }
+
+    private boolean isSquareAttacked(int square, Color byColor, long occupied) {
+        if((MoveManager.knightAttacks(square) & bitboards[Piece.index(byColor, Type.KNIGHT)]) != Bitboards.EMPTY)
+            return true;
+        // a pawn attacks this square from wherever a pawn of the other color here would attack
+        if((MoveManager.pawnAttacks(byColor.opposite(), square) & bitboards[Piece.index(byColor, Type.PAWN)]) != Bitboards.EMPTY)
+            return true;
+        if((MoveManager.kingAttacks(square) & bitboards[Piece.index(byColor, Type.KING)]) != Bitboards.EMPTY)
+            return true;
+        long queens = bitboards[Piece.index(byColor, Type.QUEEN)];
+        long rooks = bitboards[Piece.index(byColor, Type.ROOK)] | queens;
+        if(rooks != Bitboards.EMPTY && (MoveManager.rookAttacks(square, occupied) & rooks) != Bitboards.EMPTY)
+            return true;
+        long bishops = bitboards[Piece.index(byColor, Type.BISHOP)] | queens;
+        return bishops != Bitboards.EMPTY && (MoveManager.bishopAttacks(square, occupied) & bishops) != Bitboards.EMPTY;
+    }
+
+    public Set<Move> getAvailableMoves(Color color, boolean checkForCheck) {
+        MoveList moves = new MoveList();
+        generateMoves(color, checkForCheck, moves);
+        Set<Move> availableMoves = new HashSet(moves.size() * 2);
+        for(int id = 0;id < moves.size();id++)
+            availableMoves.add(Move.unpack(moves.get(id)));
         return availableMoves;
     }
 
+    /**
+     * Clears the list and fills it with packed moves for the color, without allocating.
+     * Returns the number of moves generated.
+     */
+    public int generateMoves(Color color, boolean checkForCheck, MoveList availableMoves) {
+        return generateMoves(color, checkForCheck, ~Bitboards.EMPTY, availableMoves);
+    }
+
+    /**
+     * Same as above, but only moves landing on the given squares, e.g. getOccupancy of the
+     * opponent for captures only, or ~getOccupied() for quiet moves only.
+     */
+    public int generateMoves(Color color, boolean checkForCheck, long targetMask, MoveList availableMoves) {
+        availableMoves.clear();
+        long own = colors[color.ordinal()];
+        long kings = bitboards[Piece.index(color, Type.KING)];
+        if(false == checkForCheck || kings == Bitboards.EMPTY) {
+            for(long remaining = own;remaining != Bitboards.EMPTY;remaining &= remaining - 1) {
+                int square = Bitboards.lowest(remaining);
+                addMoves(square, MoveManager.targets(squares[square], square, own, occupied & ~own) & targetMask, availableMoves);
+            }
+            return availableMoves.size();
+        }
+
+        Color opponent = color.opposite();
+        int king = Bitboards.lowest(kings);
+        long enemy = occupied & ~own;
+
+        // the king may step anywhere not attacked once it has left its square, so sliders see through it
+        long withoutKing = occupied & ~kings;
+        long kingTargets = MoveManager.kingAttacks(king) & ~own & targetMask;
+        for(long remaining = kingTargets;remaining != Bitboards.EMPTY;remaining &= remaining - 1) {
+            int target = Bitboards.lowest(remaining);
+            if(attackersOf(target, opponent, withoutKing) != Bitboards.EMPTY)
+                kingTargets &= ~Bitboards.bit(target);
+        }
+        addMoves(king, kingTargets, availableMoves);
+
+        long checkers = attackersOf(king, opponent, occupied);
+        if(Bitboards.count(checkers) > 1)
+            return availableMoves.size();
+        // out of check the rest of the army must capture the checker or step in front of it
+        long evasions = checkers == Bitboards.EMPTY
+                ? targetMask
+                : (checkers | MoveManager.between(king, Bitboards.lowest(checkers))) & targetMask;
+
+        long pinned = pinned(king, color);
+        for(long remaining = own & ~kings;remaining != Bitboards.EMPTY;remaining &= remaining - 1) {
+            int square = Bitboards.lowest(remaining);
+            long targets = MoveManager.targets(squares[square], square, own, enemy) & evasions;
+            if(Bitboards.isSet(pinned, square))
+                targets &= MoveManager.line(king, square);
+            addMoves(square, targets, availableMoves);
+        }
+        return availableMoves.size();
+    }
+
+    /**
+     * Whether a packed move that was legal somewhere, e.g. one from the transposition table or
+     * a killer from a sibling node, is legal here for the side to move. Cheaper than generating
+     * every move to look for it.
+     */
+    public boolean isLegal(int move) {
+        if(move == Move.NONE)
+            return false;
+        int from = Move.fromSquare(move);
+        int to = Move.toSquare(move);
+        Piece piece = squares[from];
+        if(piece == null || piece != Move.piece(move) || piece.color != turn || squares[to] != Move.captured(move))
+            return false;
+        long own = colors[turn.ordinal()];
+        if(false == Bitboards.isSet(MoveManager.targets(piece, from, own, occupied & ~own), to))
+            return false;
+        makeMove(move);
+        boolean legal = false == isChecked(piece.color);
+        unmakeMove();
+        return legal;
+    }
+
+    private void addMoves(int square, long targets, MoveList moves) {
+        Piece piece = squares[square];
+        for(;targets != Bitboards.EMPTY;targets &= targets - 1) {
+            int target = Bitboards.lowest(targets);
+            moves.add(Move.pack(square, target, piece, squares[target]));
+        }
+    }
+
+    /**
+     * Pieces of the given color that are the only thing between their king and an enemy slider.
+     */
+    private long pinned(int king, Color color) {
+        Color opponent = color.opposite();
+        long enemy = colors[opponent.ordinal()];
+        long queens = bitboards[Piece.index(opponent, Type.QUEEN)];
+        long snipers = (MoveManager.rookAttacks(king, enemy) & (bitboards[Piece.index(opponent, Type.ROOK)] | queens))
+                | (MoveManager.bishopAttacks(king, enemy) & (bitboards[Piece.index(opponent, Type.BISHOP)] | queens));
+        long pinned = Bitboards.EMPTY;
+        for(;snipers != Bitboards.EMPTY;snipers &= snipers - 1) {
+            long blockers = MoveManager.between(king, Bitboards.lowest(snipers)) & occupied;
+            if(Bitboards.count(blockers) == 1)
+                pinned |= blockers & colors[color.ordinal()];
+        }
+        return pinned;
+    }
+
+    public Piece getPiece(Position position) {
+        return squares[Bitboards.square(position)];
+    }
+
+    public Piece getPiece(int square) {
+        return squares[square];
+    }
+
+    public long getBitboard(Color color, Type type) {
+        return bitboards[Piece.index(color, type)];
+    }
+
+    public long getOccupancy(Color color) {
+        return colors[color.ordinal()];
+    }
+
+    public long getOccupied() {
+        return occupied;
+    }
+
     public void print(PrintStream out) {
         String horz = " +--+--+--+--+--+--+--+--+";
         for(int y = Position.MAX_POSITION;y >= Position.MIN_POSITION;y--) {
             out.println(horz);
             out.print(Position.Y_TRANSLATION[y]);
             for(int x = Position.MIN_POSITION;x <= Position.MAX_POSITION;x++) {
-                Position position = new Position(x, y);
-                Piece piece = pieces.get(position);
+                Piece piece = squares[Bitboards.square(x, y)];
                 if(piece != null)
                     out.print(new String(new char[] { '|', piece.color.code, piece.type.code }));
                 else
@@ -99,9 +395,65 @@ public class Board implements Serializable {
     }
 
     public Board copy() {
-        Map<Position, Piece> newPieces = new HashMap<>();
-        newPieces.putAll(pieces);
-        return new Board(newPieces);
+        return new Board(this);
+    }
+
+    // serialized as its packed form plus the moves that can still be taken back
+    private Object writeReplace() {
+        return new SerializedForm(PackedBoard.encode(this), Arrays.copyOf(undo, undoSize));
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("A board is only ever serialized through its packed form");
+    }
+
+    private static class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] packed;
+        private final int[] undo;
+
+        private SerializedForm(byte[] packed, int[] undo) {
+            this.packed = packed;
+            this.undo = undo;
+        }
+
+        private Object readResolve() {
+            Board board = PackedBoard.decode(packed);
+            board.undo = Arrays.copyOf(undo, Math.max(INITIAL_UNDO_CAPACITY, undo.length));
+            board.undoSize = undo.length;
+            return board;
+        }
+    }
+
+    private void put(Position position, Piece piece) {
+        put(Bitboards.square(position), piece);
+    }
+
+    void put(int square, Piece piece) {
+        long bit = Bitboards.bit(square);
+        bitboards[piece.index] |= bit;
+        colors[piece.color.ordinal()] |= bit;
+        occupied |= bit;
+        squares[square] = piece;
+        hash ^= Zobrist.piece(piece.index, square);
+        middlegame += Evaluation.middlegame(piece.index, square);
+        endgame += Evaluation.endgame(piece.index, square);
+        phase += Evaluation.phase(piece.index);
+    }
+
+    Piece remove(int square) {
+        Piece piece = squares[square];
+        long mask = ~Bitboards.bit(square);
+        bitboards[piece.index] &= mask;
+        colors[piece.color.ordinal()] &= mask;
+        occupied &= mask;
+        squares[square] = null;
+        hash ^= Zobrist.piece(piece.index, square);
+        middlegame -= Evaluation.middlegame(piece.index, square);
+        endgame -= Evaluation.endgame(piece.index, square);
+        phase -= Evaluation.phase(piece.index);
+        return piece;
     }
 
     public static Board createDefaultBoard() {
@@ -112,35 +464,35 @@ public class Board implements Serializable {
         board.placeSingleDefaultPiece(Type.KNIGHT, false, Position.MIN_POSITION+1, Position.MAX_POSITION-1);
         board.placeSingleDefaultPiece(Type.BISHOP, false, Position.MIN_POSITION+2, Position.MAX_POSITION-2);
 
-        board.pieces.put(new Position(Position.MIN_POSITION+3, Position.MIN_POSITION), new Piece(Color.WHITE, Type.QUEEN));
-        board.pieces.put(new Position(Position.MIN_POSITION+3, Position.MAX_POSITION), new Piece(Color.BLACK, Type.QUEEN));
-        board.pieces.put(new Position(Position.MAX_POSITION-3, Position.MIN_POSITION), new Piece(Color.WHITE, Type.KING));
-        board.pieces.put(new Position(Position.MAX_POSITION-3, Position.MAX_POSITION), new Piece(Color.BLACK, Type.KING));
+        board.put(Position.of(Position.MIN_POSITION+3, Position.MIN_POSITION), Piece.of(Color.WHITE, Type.QUEEN));
+        board.put(Position.of(Position.MIN_POSITION+3, Position.MAX_POSITION), Piece.of(Color.BLACK, Type.QUEEN));
+        board.put(Position.of(Position.MAX_POSITION-3, Position.MIN_POSITION), Piece.of(Color.WHITE, Type.KING));
+        board.put(Position.of(Position.MAX_POSITION-3, Position.MAX_POSITION), Piece.of(Color.BLACK, Type.KING));
         return board;
     }
 
     public static Board createTestBoard() {
         Board board = new Board();
-        board.pieces.put(new Position(Position.MIN_POSITION+3, Position.MIN_POSITION+3), new Piece(Color.WHITE, Type.KING));
-        board.pieces.put(new Position(Position.MAX_POSITION-3, Position.MAX_POSITION-3), new Piece(Color.BLACK, Type.KING));
+        board.put(Position.of(Position.MIN_POSITION+3, Position.MIN_POSITION+3), Piece.of(Color.WHITE, Type.KING));
+        board.put(Position.of(Position.MAX_POSITION-3, Position.MAX_POSITION-3), Piece.of(Color.BLACK, Type.KING));
         return board;
     }
 
     public static Board createCMBoard() {
         Board board = new Board();
-        board.pieces.put(new Position(Position.MIN_POSITION, Position.MIN_POSITION), new Piece(Color.WHITE, Type.KING));
-        board.pieces.put(new Position(Position.MAX_POSITION, Position.MAX_POSITION), new Piece(Color.BLACK, Type.KING));
-        board.pieces.put(new Position(Position.MAX_POSITION, Position.MIN_POSITION+2), new Piece(Color.BLACK, Type.ROOK));
-        board.pieces.put(new Position(Position.MAX_POSITION, Position.MIN_POSITION+4), new Piece(Color.BLACK, Type.ROOK));
-        board.pieces.put(new Position(Position.MAX_POSITION, Position.MIN_POSITION+6), new Piece(Color.BLACK, Type.ROOK));
-        board.pieces.put(new Position(Position.MAX_POSITION, Position.MIN_POSITION+5), new Piece(Color.BLACK, Type.ROOK));
+        board.put(Position.of(Position.MIN_POSITION, Position.MIN_POSITION), Piece.of(Color.WHITE, Type.KING));
+        board.put(Position.of(Position.MAX_POSITION, Position.MAX_POSITION), Piece.of(Color.BLACK, Type.KING));
+        board.put(Position.of(Position.MAX_POSITION, Position.MIN_POSITION+2), Piece.of(Color.BLACK, Type.ROOK));
+        board.put(Position.of(Position.MAX_POSITION, Position.MIN_POSITION+4), Piece.of(Color.BLACK, Type.ROOK));
+        board.put(Position.of(Position.MAX_POSITION, Position.MIN_POSITION+6), Piece.of(Color.BLACK, Type.ROOK));
+        board.put(Position.of(Position.MAX_POSITION, Position.MIN_POSITION+5), Piece.of(Color.BLACK, Type.ROOK));
         return board;
     }
 
     private void placeSingleDefaultPiece(final Type type, boolean secondRow, final int ... dxs) {
         for(int dx:dxs) {
-            pieces.put(new Position(dx, Position.MIN_POSITION+(secondRow?1:0)), new Piece(Color.WHITE, type));
-            pieces.put(new Position(Position.MAX_POSITION-dx, Position.MAX_POSITION-(secondRow?1:0)), new Piece(Color.BLACK, type));
+            put(Position.of(dx, Position.MIN_POSITION+(secondRow?1:0)), Piece.of(Color.WHITE, type));
+            put(Position.of(Position.MAX_POSITION-dx, Position.MAX_POSITION-(secondRow?1:0)), Piece.of(Color.BLACK, type));
         }
     }
 }
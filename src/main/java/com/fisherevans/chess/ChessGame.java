@@ -4,11 +4,15 @@ import com.fisherevans.chess.Piece.Color;
 import com.fisherevans.chess.Piece.Type;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class ChessGame {
     public static void main(String[] args) {
@@ -20,27 +24,16 @@ public class ChessGame {
     }
 
     public static Map<String, Integer> playMany(int count) {
-        Map<String, Integer> wins = new HashMap<>();
-        wins.put("Dummy", 0);
-        wins.put("Greedy", 0);
-        wins.put("Draw", 0);
-        for(int id = 0;id < count;id++) {
-            GameIntelligence white = id % 2 == 0 ? GameIntelligence.dummy() : GameIntelligence.greedy();
-            GameIntelligence black = id % 2 == 0 ? GameIntelligence.greedy() : GameIntelligence.dummy();
-            Color winner = playOne(white, black);
-            String winnerName = "";
-            if(winner == null) {
-                winnerName = "Draw";
-            } else {
-                if(winner == Color.WHITE) {
-                    winnerName = id % 2 == 0 ? "Dummy" : "Greedy";
-                } else { // BLACK
-                    winnerName = id % 2 == 0 ? "Greedy" : "Dummy";
-                }
-            }
-            wins.put(winnerName, wins.get(winnerName) + 1);
-        }
-        return wins;
+        return playMany(count, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Plays dummy against greedy count times, alternating colors, spread over the given number
+     * of threads. The same seed always gives the same totals, whatever the thread count.
+     */
+    public static Map<String, Integer> playMany(int count, int threads, long seed) {
+        Tournament tournament = new Tournament("Dummy", GameIntelligence::dummy, "Greedy", GameIntelligence::greedy);
+        return tournament.play(count, threads, seed).toMap();
     }
 
     public static Color playOne(GameIntelligence white, GameIntelligence black) {
@@ -55,8 +48,24 @@ public class ChessGame {
     private Color winner = null;
     private final List<Move> moves;
     private Color currentTurn;
+    private Termination termination = null;
+    private final List<GameListener> listeners = new ArrayList<>();
+    // stops players whose clock runs out mid move; shared by all games, one daemon thread
+    private static final ScheduledExecutorService FLAG = createFlagTimer();
+    private final TimeControl timeControl;
+    private final long[] remainingMillis = new long[Color.values().length];
 
     public ChessGame(GameIntelligence white, GameIntelligence black) {
+        this(white, black, null);
+    }
+
+    /**
+     * A game played on the clock, or untimed if timeControl is null.
+     */
+    public ChessGame(GameIntelligence white, GameIntelligence black, TimeControl timeControl) {
+        this.timeControl = timeControl;
+        if(timeControl != null)
+            Arrays.fill(remainingMillis, timeControl.baseMillis);
         this.board = Board.createDefaultBoard();
         white.initialize(board.copy(), Color.WHITE);
         ai.put(Color.WHITE, white);
@@ -64,6 +73,8 @@ public class ChessGame {
         ai.put(Color.BLACK, black);
         moves = new ArrayList<>();
         currentTurn = Color.WHITE;
+        if(doPrint)
+            addListener(GameListener.console(System.out));
     }
 
     public boolean isPlayed() {
@@ -82,43 +93,93 @@ public class ChessGame {
         return currentTurn;
     }
 
+    public Termination getTermination() {
+        return termination;
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    /**
+     * Time left on the color's clock, or 0 in an untimed game.
+     */
+    public long getRemainingMillis(Color color) {
+        return remainingMillis[color.ordinal()];
+    }
+
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Plays the game to the end, then closes both players. Nothing is formatted or printed
+     * unless a listener is attached.
+     */
     public void play() {
         if(played)
             throw new RuntimeException("This game has already been played!");
+        try {
+            playTurns();
+        } finally {
+            ai.get(Color.WHITE).close();
+            ai.get(Color.BLACK).close();
+        }
+    }
 
-        Scanner scanner = new Scanner(System.in);
-
-        boolean wait = false;
+    private void playTurns() {
+        boolean listening = false == listeners.isEmpty();
         int turn = 1;
         int lastCapture = 0;
         int lastPawn = 0;
         Move lastMove = null;
-        while(wait == false || scanner.hasNextLine()) {
-            if(wait) {
-                scanner.nextLine();
-            }
-            println("");
-            if(doPrint) {
-                board.print(System.out);
-            }
-            println("");
+        while(true) {
             Set<Move> availableMoves = board.getAvailableMoves(currentTurn, true);
-            boolean inCheck = board.isChecked(currentTurn);
-            println(currentTurn + " has " + availableMoves.size() + " available moves.");
-            if(inCheck) {
-                println(currentTurn + " is in CHECK!");
+            boolean inCheck = (listening || availableMoves.isEmpty()) && board.isChecked(currentTurn);
+            if(listening) {
+                for(GameListener listener:listeners)
+                    listener.turnStarted(turn, currentTurn, board, availableMoves);
+                if(inCheck)
+                    for(GameListener listener:listeners)
+                        listener.checked(turn, currentTurn);
             }
             if(availableMoves.size() == 0) {
                 if(inCheck) {
-                    endGame(currentTurn.opposite(), "Check mate!", turn);
+                    endGame(currentTurn.opposite(), Termination.CHECKMATE, turn);
                 } else {
-                    endGame(null, currentTurn + " is not in check, but cannot move. It's a draw!", turn);
+                    endGame(null, Termination.STALEMATE, turn);
                 }
                 return;
             }
-            lastMove = ai.get(currentTurn).calculateMove(lastMove, availableMoves);
+            GameIntelligence player = ai.get(currentTurn);
+            long start = System.nanoTime();
+            ScheduledFuture<?> flag = null;
+            if(timeControl != null) {
+                player.clockUpdated(remainingMillis[currentTurn.ordinal()],
+                        remainingMillis[currentTurn.opposite().ordinal()], timeControl.incrementMillis);
+                flag = FLAG.schedule(player::stop, remainingMillis[currentTurn.ordinal()], TimeUnit.MILLISECONDS);
+            }
+            try {
+                lastMove = player.calculateMove(lastMove, availableMoves);
+            } finally {
+                if(flag != null)
+                    flag.cancel(false);
+            }
+            if(timeControl != null) {
+                remainingMillis[currentTurn.ordinal()] -= (System.nanoTime() - start) / 1000000L;
+                if(remainingMillis[currentTurn.ordinal()] < 0) {
+                    remainingMillis[currentTurn.ordinal()] = 0;
+                    endGame(currentTurn.opposite(), Termination.FLAG_FALL, turn);
+                    return;
+                }
+                remainingMillis[currentTurn.ordinal()] += timeControl.incrementMillis;
+            }
             if(lastMove == null) {
-                endGame(currentTurn.opposite(), currentTurn + " has forfeited!", turn);
+                endGame(currentTurn.opposite(), Termination.FORFEIT, turn);
                 return;
             }
             try {
@@ -130,6 +191,14 @@ public class ChessGame {
                 System.exit(1);
             }
             moves.add(lastMove);
+            if(listening) {
+                Search.Result search = player.getLastSearch();
+                for(GameListener listener:listeners) {
+                    if(search != null)
+                        listener.searched(turn, currentTurn, search);
+                    listener.moveMade(turn, currentTurn, lastMove);
+                }
+            }
             if(lastMove.captured != null) {
                 lastCapture = 0;
             }
@@ -142,31 +211,45 @@ public class ChessGame {
                 return;
             }
             currentTurn = currentTurn.opposite();
-            println("Turn " + (turn++) + " - " + lastMove.toLongString());
+            turn++;
         }
     }
 
-    private void endGame(Color winner, String reason, int turns) {
+    private static ScheduledExecutorService createFlagTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "chess-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    private void endGame(Color winner, Termination termination, int turns) {
         this.winner = winner;
+        this.termination = termination;
         played = true;
-        println("--------------------\n");
-        println((winner == null ? "No one" : winner.name()) + " won the game!");
-        println(reason);
-        println("\nThe game took " + turns + " turns.");
+        for(GameListener listener:listeners)
+            listener.gameEnded(winner, termination, turns);
     }
 
     private boolean isEndCondition(int lastPawn, int lastCapture, int turn) {
         if(lastCapture > 50) {
-            endGame(null, "The last piece was captured 50 turns ago. It's a draw!", turn);
+            endGame(null, Termination.NO_CAPTURE, turn);
             return true;
         }
         if(lastPawn > 50) {
-            endGame(null, "The last pawn moved was 50 turns ago. It's a draw!", turn);
+            endGame(null, Termination.NO_PAWN_MOVE, turn);
             return true;
         }
         return false;
     }
 
+    public enum Termination {
+        // game records store the ordinal, so new values go at the end
+        CHECKMATE, STALEMATE, FORFEIT, NO_CAPTURE, NO_PAWN_MOVE, FLAG_FALL
+    }
+
     private static final boolean doPrint = false;
 
     public static void println(String message) {
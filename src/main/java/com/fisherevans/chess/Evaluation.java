@@ -0,0 +1,185 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+import com.fisherevans.chess.Piece.Type;
+
+/**
+ * Material and piece-square tables for a middlegame and an endgame score, in centipawns. A
+ * position's scores are the sum of the entries for every piece on its square, white counting
+ * positive and black negative, so {@link Board} keeps them up to date as pieces come and go.
+ * The two are blended by game phase, which drops from {@link #MAX_PHASE} towards 0 as pieces
+ * other than pawns and kings leave the board.
+ */
+public final class Evaluation {
+    public static final int MAX_PHASE = 24;
+
+    // indexed by Type ordinal: pawn, rook, knight, bishop, queen, king
+    private static final int[] MIDDLEGAME_VALUES = { 82, 477, 337, 365, 1025, 0 };
+    private static final int[] ENDGAME_VALUES = { 94, 512, 281, 297, 936, 0 };
+    private static final int[] PHASE_WEIGHTS = { 0, 2, 1, 1, 4, 0 };
+    // what losing the king costs in an exchange, i.e. more than everything else together
+    private static final int KING_VALUE = 20000;
+
+    // tables are laid out as read from white's side, rank 8 first, so a white piece on square
+    // s uses entry s ^ 56 and a black piece entry s
+
+    // pawns don't promote here; one on the last rank is stuck, so advancing only earns space
+    private static final int[] PAWN_MIDDLEGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             10,  10,  10,  15,  15,  10,  10,  10,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+    };
+    private static final int[] PAWN_ENDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             10,  10,  10,  10,  10,  10,  10,  10,
+             15,  15,  15,  15,  15,  15,  15,  15,
+             15,  15,  15,  15,  15,  15,  15,  15,
+             10,  10,  10,  10,  10,  10,  10,  10,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0,
+    };
+    private static final int[] ROOK = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0,
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50,
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20,
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+    };
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20,
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50,
+    };
+
+    // indexed by Type ordinal
+    private static final int[][] MIDDLEGAME_TABLES = { PAWN_MIDDLEGAME, ROOK, KNIGHT, BISHOP, QUEEN, KING_MIDDLEGAME };
+    private static final int[][] ENDGAME_TABLES = { PAWN_ENDGAME, ROOK, KNIGHT, BISHOP, QUEEN, KING_ENDGAME };
+
+    // value plus table entry, signed by color, per piece index and square
+    private static final int[][] MIDDLEGAME = new int[Piece.COUNT][Bitboards.SQUARES];
+    private static final int[][] ENDGAME = new int[Piece.COUNT][Bitboards.SQUARES];
+    private static final int[] PHASE = new int[Piece.COUNT];
+
+    static {
+        for(Color color:Color.values()) {
+            for(Type type:Type.values()) {
+                int piece = Piece.index(color, type);
+                int sign = color == Color.WHITE ? 1 : -1;
+                int flip = color == Color.WHITE ? 56 : 0;
+                for(int square = 0;square < Bitboards.SQUARES;square++) {
+                    MIDDLEGAME[piece][square] = sign * (MIDDLEGAME_VALUES[type.ordinal()] + MIDDLEGAME_TABLES[type.ordinal()][square ^ flip]);
+                    ENDGAME[piece][square] = sign * (ENDGAME_VALUES[type.ordinal()] + ENDGAME_TABLES[type.ordinal()][square ^ flip]);
+                }
+                PHASE[piece] = PHASE_WEIGHTS[type.ordinal()];
+            }
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    /**
+     * The piece's middlegame contribution on the square, positive for white.
+     */
+    public static int middlegame(int piece, int square) {
+        return MIDDLEGAME[piece][square];
+    }
+
+    /**
+     * The piece's endgame contribution on the square, positive for white.
+     */
+    public static int endgame(int piece, int square) {
+        return ENDGAME[piece][square];
+    }
+
+    /**
+     * Material value of the type for weighing exchanges.
+     */
+    public static int value(Type type) {
+        return type == Type.KING ? KING_VALUE : MIDDLEGAME_VALUES[type.ordinal()];
+    }
+
+    public static int phase(int piece) {
+        return PHASE[piece];
+    }
+
+    /**
+     * Blends the scores by phase and turns the result to color's point of view. Phase may run
+     * above MAX_PHASE on boards with extra pieces; those count as pure middlegame.
+     */
+    public static int taper(int middlegame, int endgame, int phase, Color color) {
+        int weight = Math.min(phase, MAX_PHASE);
+        int score = (middlegame * weight + endgame * (MAX_PHASE - weight)) / MAX_PHASE;
+        return color == Color.WHITE ? score : -score;
+    }
+
+    /**
+     * Evaluates from scratch for color. Only meant for checking the incrementally kept scores.
+     */
+    public static int evaluate(Board board, Color color) {
+        int middlegame = 0, endgame = 0, phase = 0;
+        for(int square = 0;square < Bitboards.SQUARES;square++) {
+            Piece piece = board.getPiece(square);
+            if(piece != null) {
+                middlegame += middlegame(piece.index, square);
+                endgame += endgame(piece.index, square);
+                phase += phase(piece.index);
+            }
+        }
+        return taper(middlegame, endgame, phase, color);
+    }
+}
@@ -0,0 +1,110 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+import com.fisherevans.chess.Piece.Type;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Only the piece placement and side to
+ * move matter to this game; castling, en passant and move counters are accepted and ignored
+ * when reading, and written as "- - 0 1". Reading walks the string once without splitting it,
+ * so loading many positions costs little more than the boards themselves.
+ */
+public final class Fen {
+    private static final String ERR_FMT_ENC = "Invalid FEN: %s";
+
+    public static final String DEFAULT = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    // piece by its FEN letter, upper case for white
+    private static final Piece[] PIECES = new Piece[128];
+    private static final char[] CODES = new char[Piece.COUNT];
+
+    static {
+        for(Color color:Color.values()) {
+            for(Type type:Type.values()) {
+                Piece piece = Piece.of(color, type);
+                char code = color == Color.WHITE ? type.code : Character.toLowerCase(type.code);
+                PIECES[code] = piece;
+                CODES[piece.index] = code;
+            }
+        }
+    }
+
+    private Fen() {
+    }
+
+    public static Board parse(final String fen) {
+        Board board = new Board();
+        int length = fen.length();
+        int at = skipWhitespace(fen, 0);
+        int x = Position.MIN_POSITION;
+        int y = Position.MAX_POSITION;
+        for(;at < length;at++) {
+            char code = fen.charAt(at);
+            if(Character.isWhitespace(code))
+                break;
+            if(code == '/') {
+                if(x != Position.MAX_POSITION + 1 || y == Position.MIN_POSITION)
+                    throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+                x = Position.MIN_POSITION;
+                y--;
+            } else if(code >= '1' && code <= '8') {
+                x += code - '0';
+                if(x > Position.MAX_POSITION + 1)
+                    throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+            } else {
+                Piece piece = code < PIECES.length ? PIECES[code] : null;
+                if(piece == null || x > Position.MAX_POSITION)
+                    throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+                board.put(Bitboards.square(x++, y), piece);
+            }
+        }
+        if(x != Position.MAX_POSITION + 1 || y != Position.MIN_POSITION)
+            throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+        at = skipWhitespace(fen, at);
+        if(at < length) {
+            char side = fen.charAt(at);
+            if(side == 'b')
+                board.setTurn(Color.BLACK);
+            else if(side != 'w')
+                throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+            if(at + 1 < length && false == Character.isWhitespace(fen.charAt(at + 1)))
+                throw new RuntimeException(String.format(ERR_FMT_ENC, fen));
+        }
+        return board;
+    }
+
+    public static String write(Board board) {
+        return write(board, new StringBuilder(96)).toString();
+    }
+
+    /**
+     * Appends the position's FEN to the builder, so callers writing many can reuse one.
+     */
+    public static StringBuilder write(Board board, StringBuilder out) {
+        for(int y = Position.MAX_POSITION;y >= Position.MIN_POSITION;y--) {
+            int empty = 0;
+            for(int x = Position.MIN_POSITION;x <= Position.MAX_POSITION;x++) {
+                Piece piece = board.getPiece(Bitboards.square(x, y));
+                if(piece == null) {
+                    empty++;
+                    continue;
+                }
+                if(empty > 0)
+                    out.append((char) ('0' + empty));
+                empty = 0;
+                out.append(CODES[piece.index]);
+            }
+            if(empty > 0)
+                out.append((char) ('0' + empty));
+            if(y > Position.MIN_POSITION)
+                out.append('/');
+        }
+        return out.append(board.getTurn() == Color.WHITE ? " w" : " b").append(" - - 0 1");
+    }
+
+    private static int skipWhitespace(String fen, int at) {
+        while(at < fen.length() && Character.isWhitespace(fen.charAt(at)))
+            at++;
+        return at;
+    }
+}
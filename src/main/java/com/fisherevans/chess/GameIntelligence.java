@@ -5,6 +5,7 @@ import com.fisherevans.chess.Piece.Color;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -18,7 +19,43 @@ public interface GameIntelligence {
 
     Move calculateMove(Move lastMove, Set<Move> availableMoves);
 
+    /**
+     * In a timed game, called just before every calculateMove with both clocks and the
+     * increment, in milliseconds. The clock is already running.
+     */
+    default void clockUpdated(long ownMillis, long opponentMillis, long incrementMillis) {
+    }
+
+    /**
+     * Asks a calculateMove running on another thread to return its best move so far as soon as
+     * it can. Engines that can't be interrupted ignore it.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Called once the game is over, so engines can shut down their threads. ChessGame.play does
+     * this for both players.
+     */
+    default void close() {
+    }
+
+    /**
+     * The search behind the move calculateMove last returned, or null if there wasn't an
+     * alpha-beta search behind it. Listeners hear about it through GameListener.searched.
+     */
+    default Search.Result getLastSearch() {
+        return null;
+    }
+
     static GameIntelligence dummy() {
+        return dummy(new Random());
+    }
+
+    /**
+     * Plays a random legal move, drawn from the given source so games can be replayed.
+     */
+    static GameIntelligence dummy(Random random) {
         return new GameIntelligence() {
             private Board board;
             private Color color;
@@ -34,13 +71,21 @@ public interface GameIntelligence {
             @Override
             public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
                 List<Move> moves = new ArrayList<>(availableMoves);
-                Collections.shuffle(moves);
+                Collections.shuffle(moves, random);
                 return moves.size() > 0 ? moves.get(0) : null;
             }
         };
     }
 
     static GameIntelligence greedy() {
+        return greedy(new Random());
+    }
+
+    /**
+     * Takes the most valuable capture available, otherwise a random move, breaking ties with
+     * the given source so games can be replayed.
+     */
+    static GameIntelligence greedy(Random random) {
         return new GameIntelligence() {
             private Board board;
             private Color color;
@@ -56,7 +101,7 @@ public interface GameIntelligence {
             @Override
             public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
                 List<Move> moves = new ArrayList<>(availableMoves);
-                Collections.shuffle(moves);
+                Collections.shuffle(moves, random);
                 Move myMove = null;
                 for(Move move:moves) {
                     if(move.captured != null) {
@@ -74,6 +119,306 @@ public interface GameIntelligence {
         };
     }
 
+    /**
+     * Alpha-beta engine that thinks for as long as the limits allow on every move, with a
+     * borrowed default size table handed back on close.
+     */
+    static GameIntelligence search(SearchLimits limits) {
+        return search(limits, null);
+    }
+
+    /**
+     * Same, searching with the given table, which stays the caller's to reuse across games.
+     */
+    static GameIntelligence search(SearchLimits limits, TranspositionTable table) {
+        return new GameIntelligence() {
+            private TranspositionTable borrowed = table == null ? TranspositionTable.borrow() : null;
+            private final Search search = new Search(table == null ? borrowed : table);
+            private Search.Result lastSearch;
+            private Board board;
+            private Color color;
+            @Override
+            public void initialize(Board board, Color color) {
+                this.board = board;
+                this.color = color;
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                board.applyMove(move);
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                lastSearch = search.search(board, color, limits);
+                return lastSearch.getMove();
+            }
+            @Override
+            public Search.Result getLastSearch() {
+                return lastSearch;
+            }
+            @Override
+            public void stop() {
+                search.stop();
+            }
+            @Override
+            public void close() {
+                if(borrowed != null)
+                    borrowed.release();
+                borrowed = null;
+            }
+        };
+    }
+
+    /**
+     * Alpha-beta engine searching with several threads at once over a shared table, a borrowed
+     * default size one handed back on close.
+     */
+    static GameIntelligence parallelSearch(SearchLimits limits, int threads) {
+        return parallelSearch(limits, threads, null);
+    }
+
+    /**
+     * Same, searching with the given table, which stays the caller's to reuse across games.
+     */
+    static GameIntelligence parallelSearch(SearchLimits limits, int threads, TranspositionTable table) {
+        return new GameIntelligence() {
+            private TranspositionTable borrowed = table == null ? TranspositionTable.borrow() : null;
+            private final ParallelSearch search = new ParallelSearch(threads, table == null ? borrowed : table);
+            private Search.Result lastSearch;
+            private Board board;
+            private Color color;
+            @Override
+            public void initialize(Board board, Color color) {
+                this.board = board;
+                this.color = color;
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                board.applyMove(move);
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                lastSearch = search.search(board, color, limits);
+                return lastSearch.getMove();
+            }
+            @Override
+            public Search.Result getLastSearch() {
+                return lastSearch;
+            }
+            @Override
+            public void stop() {
+                search.stop();
+            }
+            @Override
+            public void close() {
+                search.shutdown();
+                if(borrowed != null)
+                    borrowed.release();
+                borrowed = null;
+            }
+        };
+    }
+
+    /**
+     * Alpha-beta engine for timed games, giving each move a share of its clock (see
+     * {@link TimeControl#budget}) and using the limits as they are in untimed games. With ponder
+     * set it keeps searching on the opponent's time, for at most as long as the opponent has
+     * left, or the limits' time in untimed games. Uses a borrowed default size table handed back
+     * on close.
+     */
+    static GameIntelligence clockedSearch(SearchLimits limits, boolean ponder) {
+        return clockedSearch(limits, ponder, null);
+    }
+
+    /**
+     * Same, searching with the given table, which stays the caller's to reuse across games.
+     */
+    static GameIntelligence clockedSearch(SearchLimits limits, boolean ponder, TranspositionTable table) {
+        return new GameIntelligence() {
+            private TranspositionTable borrowed = table == null ? TranspositionTable.borrow() : null;
+            private final PonderingSearch search = new PonderingSearch(table == null ? borrowed : table);
+            private Search.Result lastSearch;
+            private Board board;
+            private Color color;
+            private boolean timed;
+            private long ownMillis, opponentMillis, incrementMillis;
+            private int expected = Move.NONE;
+            @Override
+            public void initialize(Board board, Color color) {
+                this.board = board;
+                this.color = color;
+            }
+            @Override
+            public void clockUpdated(long ownMillis, long opponentMillis, long incrementMillis) {
+                timed = true;
+                this.ownMillis = ownMillis;
+                this.opponentMillis = opponentMillis;
+                this.incrementMillis = incrementMillis;
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                board.applyMove(move);
+                if(move.piece.color != color) {
+                    search.opponentMoved(move.pack());
+                } else if(ponder) {
+                    long millis = timed ? opponentMillis + incrementMillis : limits.millis;
+                    search.ponder(board, color, expected, limits.withMillis(millis));
+                }
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                SearchLimits moveLimits = timed ? limits.withMillis(TimeControl.budget(ownMillis, incrementMillis)) : limits;
+                lastSearch = search.search(board, color, moveLimits);
+                expected = lastSearch.pv.length > 1 ? lastSearch.pv[1] : Move.NONE;
+                return lastSearch.getMove();
+            }
+            @Override
+            public Search.Result getLastSearch() {
+                return lastSearch;
+            }
+            @Override
+            public void stop() {
+                search.stop();
+            }
+            @Override
+            public void close() {
+                search.shutdown();
+                if(borrowed != null)
+                    borrowed.release();
+                borrowed = null;
+            }
+        };
+    }
+
+    static GameIntelligence monteCarlo(SearchLimits limits, int threads) {
+        return monteCarlo(limits, threads, new Random());
+    }
+
+    /**
+     * Monte Carlo tree search with greedy playouts, keeping its tree from move to move. The
+     * limits' node count caps the playouts per move.
+     */
+    static GameIntelligence monteCarlo(SearchLimits limits, int threads, Random random) {
+        return new GameIntelligence() {
+            private final MonteCarloSearch search = new MonteCarloSearch(threads, MonteCarloSearch.DEFAULT_CAPACITY,
+                    MonteCarloSearch.Rollout.greedy(), random);
+            @Override
+            public void initialize(Board board, Color color) {
+                search.reset(board);
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                search.advance(move.pack());
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                return search.search(limits).getMove();
+            }
+            @Override
+            public void stop() {
+                search.stop();
+            }
+            @Override
+            public void close() {
+                search.shutdown();
+            }
+        };
+    }
+
+    /**
+     * Plays from the opening book while the position is in it, drawing among its moves with the
+     * given source, and asks the engine otherwise. The engine still hears about every move.
+     */
+    static GameIntelligence withBook(OpeningBook book, GameIntelligence engine, Random random) {
+        return new GameIntelligence() {
+            private Board board;
+            private boolean engineMoved;
+            @Override
+            public void initialize(Board board, Color color) {
+                this.board = board.copy();
+                engine.initialize(board, color);
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                board.applyMove(move);
+                engine.applyMove(move);
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                int bookMove = book.probe(board.getHash(), random);
+                engineMoved = false;
+                for(Move move:availableMoves)
+                    if(move.pack() == bookMove)
+                        return move;
+                engineMoved = true;
+                return engine.calculateMove(lastMove, availableMoves);
+            }
+            @Override
+            public Search.Result getLastSearch() {
+                return engineMoved ? engine.getLastSearch() : null;
+            }
+            @Override
+            public void stop() {
+                engine.stop();
+            }
+            @Override
+            public void close() {
+                engine.close();
+            }
+        };
+    }
+
+    /**
+     * Plays perfectly from the tablebase once few enough pieces are left: the quickest win,
+     * else a draw, else the longest loss. Asks the engine in positions no table covers. The
+     * engine still hears about every move.
+     */
+    static GameIntelligence withTablebase(Tablebase tablebase, GameIntelligence engine) {
+        return new GameIntelligence() {
+            private Board board;
+            private boolean engineMoved;
+            @Override
+            public void initialize(Board board, Color color) {
+                this.board = board.copy();
+                engine.initialize(board, color);
+            }
+            @Override
+            public void applyMove(Move move) throws Exception {
+                board.applyMove(move);
+                engine.applyMove(move);
+            }
+            @Override
+            public Move calculateMove(Move lastMove, Set<Move> availableMoves) {
+                engineMoved = tablebase.probe(board) == Tablebase.NONE;
+                if(engineMoved)
+                    return engine.calculateMove(lastMove, availableMoves);
+                Move best = null;
+                int bestRank = Integer.MIN_VALUE;
+                for(Move move:availableMoves) {
+                    board.makeMove(move);
+                    int rank = Tablebase.rankForMover(tablebase.probe(board));
+                    board.unmakeMove();
+                    if(rank > bestRank) {
+                        best = move;
+                        bestRank = rank;
+                    }
+                }
+                return best;
+            }
+            @Override
+            public Search.Result getLastSearch() {
+                return engineMoved ? engine.getLastSearch() : null;
+            }
+            @Override
+            public void stop() {
+                engine.stop();
+            }
+            @Override
+            public void close() {
+                engine.close();
+            }
+        };
+    }
+
     static GameIntelligence human() {
         return new GameIntelligence() {
             private Board board;
@@ -0,0 +1,73 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.ChessGame.Termination;
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.PrintStream;
+import java.util.Set;
+
+/**
+ * Hears what happens during a {@link ChessGame}. Every method does nothing by default, so a
+ * listener only overrides the events it cares about.
+ */
+public interface GameListener {
+    default void turnStarted(int turn, Color color, Board board, Set<Move> availableMoves) {
+    }
+
+    default void checked(int turn, Color color) {
+    }
+
+    /**
+     * The alpha-beta search that chose the move about to be made, for engines that have one.
+     */
+    default void searched(int turn, Color color, Search.Result result) {
+    }
+
+    default void moveMade(int turn, Color color, Move move) {
+    }
+
+    default void gameEnded(Color winner, Termination termination, int turns) {
+    }
+
+    /**
+     * Narrates the game as text, printing the board at the start of every turn.
+     */
+    static GameListener console(PrintStream out) {
+        return new GameListener() {
+            @Override
+            public void turnStarted(int turn, Color color, Board board, Set<Move> availableMoves) {
+                out.println();
+                board.print(out);
+                out.println();
+                out.println(color + " has " + availableMoves.size() + " available moves.");
+            }
+            @Override
+            public void checked(int turn, Color color) {
+                out.println(color + " is in CHECK!");
+            }
+            @Override
+            public void searched(int turn, Color color, Search.Result result) {
+                out.println(color + " searched " + result);
+            }
+            @Override
+            public void moveMade(int turn, Color color, Move move) {
+                out.println("Turn " + turn + " - " + move.toLongString());
+            }
+            @Override
+            public void gameEnded(Color winner, Termination termination, int turns) {
+                out.println("--------------------\n");
+                out.println((winner == null ? "No one" : winner.name()) + " won the game!");
+                switch (termination) {
+                    case CHECKMATE: { out.println("Check mate!"); break; }
+                    case STALEMATE: { out.println("Not in check, but cannot move. It's a draw!"); break; }
+                    case FORFEIT: { out.println(winner.opposite() + " has forfeited!"); break; }
+                    case NO_CAPTURE: { out.println("The last piece was captured 50 turns ago. It's a draw!"); break; }
+                    case NO_PAWN_MOVE: { out.println("The last pawn moved was 50 turns ago. It's a draw!"); break; }
+                    case FLAG_FALL: { out.println(winner.opposite() + " ran out of time!"); break; }
+                    default: { out.println(termination); break; }
+                }
+                out.println("\nThe game took " + turns + " turns.");
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.ChessGame.Termination;
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One finished game as stored by {@link GameRecordWriter}: who played, how it ended and the
+ * squares of every move. Pieces aren't stored; {@link #getMoves()} gets them back by replaying
+ * the game from the default board.
+ */
+public class GameRecord {
+    public final long number;
+    public final String white, black;
+    // null for a draw
+    public final Color winner;
+    public final Termination termination;
+    private final short[] moves;
+
+    GameRecord(long number, String white, String black, Color winner, Termination termination, short[] moves) {
+        this.number = number;
+        this.white = white;
+        this.black = black;
+        this.winner = winner;
+        this.termination = termination;
+        this.moves = moves;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    public int getFromSquare(int move) {
+        return moves[move] & 0x3F;
+    }
+
+    public int getToSquare(int move) {
+        return (moves[move] >>> 6) & 0x3F;
+    }
+
+    public List<Move> getMoves() {
+        Board board = Board.createDefaultBoard();
+        List<Move> played = new ArrayList<>(moves.length);
+        for(int id = 0;id < moves.length;id++) {
+            int from = getFromSquare(id), to = getToSquare(id);
+            Piece piece = board.getPiece(from);
+            if(piece == null)
+                throw new RuntimeException(String.format("Game %d has no piece to move at ply %d", number, id + 1));
+            int move = Move.pack(from, to, piece, board.getPiece(to));
+            board.makeMove(move);
+            played.add(Move.unpack(move));
+        }
+        return played;
+    }
+
+    /**
+     * The two bytes a move takes in a record: its from and to squares.
+     */
+    static short encode(Move move) {
+        return (short) (move.from.index | (move.to.index << 6));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s vs %s: %s by %s after %d moves", number, white, black,
+                winner == null ? "draw" : winner + " won", termination, moves.length);
+    }
+}
@@ -0,0 +1,175 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.ChessGame.Termination;
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streams the games of a {@link GameRecordWriter} file in order. Only one block is held in
+ * memory at a time, so files of any number of games can be read.
+ */
+public class GameRecordReader implements Iterator<GameRecord>, Closeable {
+    private static final Termination[] TERMINATIONS = Termination.values();
+    private static final String ERR_FMT_FILE = "Invalid game record file: %s";
+
+    private final Path file;
+    private final FileChannel data;
+    private final ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.BLOCK_HEADER_BYTES);
+    private final Inflater inflater = new Inflater();
+    private final CRC32 crc = new CRC32();
+    private byte[] compressed = new byte[GameRecordWriter.DEFAULT_BLOCK_BYTES];
+    private ByteBuffer block = ByteBuffer.allocate(0);
+    private int blockGames;
+    private long next;
+
+    private GameRecordReader(Path file, FileChannel data, long position, long next) throws IOException {
+        this.file = file;
+        this.data = data;
+        this.next = next;
+        data.position(position);
+    }
+
+    public static GameRecordReader open(Path file) throws IOException {
+        return new GameRecordReader(file, FileChannel.open(file, StandardOpenOption.READ), 0, 0);
+    }
+
+    /**
+     * Opens the file with the first game number read being firstGame, using the index to skip
+     * straight to its block.
+     */
+    public static GameRecordReader open(Path file, long firstGame) throws IOException {
+        long position = 0, blockGame = 0;
+        try(FileChannel index = FileChannel.open(GameRecordWriter.indexFile(file), StandardOpenOption.READ)) {
+            ByteBuffer entries = ByteBuffer.allocate(GameRecordWriter.INDEX_ENTRY_BYTES * 4096);
+            // entries are in game order; keep the last block starting at or before firstGame
+            search:
+            while(index.read(entries) > 0) {
+                entries.flip();
+                while(entries.remaining() >= GameRecordWriter.INDEX_ENTRY_BYTES) {
+                    long game = entries.getLong();
+                    long offset = entries.getLong();
+                    if(game > firstGame)
+                        break search;
+                    blockGame = game;
+                    position = offset;
+                }
+                entries.compact();
+            }
+        }
+        GameRecordReader reader = new GameRecordReader(file, FileChannel.open(file, StandardOpenOption.READ), position, blockGame);
+        while(reader.next < firstGame && reader.hasNext())
+            reader.skip();
+        return reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(blockGames > 0)
+            return true;
+        try {
+            return readBlock();
+        } catch (IOException e) {
+            throw new RuntimeException(String.format(ERR_FMT_FILE, file), e);
+        }
+    }
+
+    @Override
+    public GameRecord next() {
+        if(false == hasNext())
+            throw new NoSuchElementException();
+        int result = block.get();
+        Termination termination = TERMINATIONS[block.get()];
+        short[] moves = new short[block.getShort() & 0xFFFF];
+        String white = readName(), black = readName();
+        for(int id = 0;id < moves.length;id++)
+            moves[id] = block.getShort();
+        blockGames--;
+        Color winner = result == GameRecordWriter.WHITE_WON ? Color.WHITE : result == GameRecordWriter.BLACK_WON ? Color.BLACK : null;
+        return new GameRecord(next++, white, black, winner, termination, moves);
+    }
+
+    /**
+     * Steps over the next game without building it.
+     */
+    public void skip() {
+        if(false == hasNext())
+            throw new NoSuchElementException();
+        block.position(block.position() + 2);
+        int moves = block.getShort() & 0xFFFF;
+        for(int name = 0;name < 2;name++) {
+            int length = block.getShort() & 0xFFFF;
+            block.position(block.position() + length);
+        }
+        block.position(block.position() + 2 * moves);
+        blockGames--;
+        next++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        data.close();
+    }
+
+    private String readName() {
+        int length = block.getShort() & 0xFFFF;
+        String name = new String(block.array(), block.position(), length, StandardCharsets.UTF_8);
+        block.position(block.position() + length);
+        return name;
+    }
+
+    private boolean readBlock() throws IOException {
+        header.clear();
+        if(false == read(header, true))
+            return false;
+        header.flip();
+        int games = header.getInt(4), rawLength = header.getInt(8), compressedLength = header.getInt(12);
+        if(header.getInt(0) != GameRecordWriter.BLOCK_MAGIC || games <= 0 || rawLength < 0 || compressedLength < 0)
+            throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+        if(compressed.length < compressedLength)
+            compressed = new byte[compressedLength];
+        read(ByteBuffer.wrap(compressed, 0, compressedLength), false);
+        if(block.capacity() < rawLength)
+            block = ByteBuffer.allocate(rawLength);
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            if(inflater.inflate(block.array(), 0, rawLength) != rawLength)
+                throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+        } catch (DataFormatException e) {
+            throw new RuntimeException(String.format(ERR_FMT_FILE, file), e);
+        }
+        crc.reset();
+        crc.update(block.array(), 0, rawLength);
+        if((int) crc.getValue() != header.getInt(16))
+            throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+        block.clear();
+        block.limit(rawLength);
+        blockGames = games;
+        return true;
+    }
+
+    // false at a clean end of file; a block cut short is an error
+    private boolean read(ByteBuffer buffer, boolean endAllowed) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(data.read(buffer) < 0) {
+                if(endAllowed && buffer.position() == 0)
+                    return false;
+                throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.ChessGame.Termination;
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Appends finished games to a compact binary file, to be read back with
+ * {@link GameRecordReader}. Every game is numbered in the order it was written.
+ *
+ * A game takes a small header (result, {@link Termination} ordinal, move count and the two
+ * player names) and 2 bytes per move, its from and to squares. Games are gathered into blocks
+ * of about blockBytes, each deflated on its own behind a 20 byte header (magic, games, raw and
+ * compressed length, CRC32 of the raw bytes). Finished blocks queue up in memory and reach the
+ * file in batches. A sidecar file, the data file's name plus ".idx", gets the first game number
+ * and file offset of every block, so a reader can start at any game.
+ *
+ * Games not yet flushed are lost if the process dies. All methods may be called from several
+ * threads at once.
+ */
+public class GameRecordWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_BYTES = 1 << 16;
+    public static final String INDEX_SUFFIX = ".idx";
+    static final int BLOCK_MAGIC = 0x43424752; // "CBGR"
+    static final int BLOCK_HEADER_BYTES = 20;
+    static final int INDEX_ENTRY_BYTES = 16;
+    static final int DRAW = 0;
+    static final int WHITE_WON = 1;
+    static final int BLACK_WON = 2;
+    // blocks waiting to be written, in bytes
+    private static final int BATCH_BYTES = 1 << 20;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final int blockBytes;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer block;
+    private byte[] compressed;
+    private final ByteBuffer pending = ByteBuffer.allocateDirect(BATCH_BYTES);
+    private final ByteBuffer pendingIndex = ByteBuffer.allocateDirect(BATCH_BYTES / 64);
+    private long offset;
+    private long games;
+    private int blockGames;
+
+    public GameRecordWriter(Path file) throws IOException {
+        this(file, DEFAULT_BLOCK_BYTES);
+    }
+
+    /**
+     * Opens the file for appending, creating it if needed. Numbering carries on from the games
+     * already in it.
+     */
+    public GameRecordWriter(Path file, int blockBytes) throws IOException {
+        if(blockBytes < 1024)
+            throw new RuntimeException(String.format("Invalid block size: %d", blockBytes));
+        this.blockBytes = blockBytes;
+        data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile(file), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        offset = data.size();
+        games = countGames(data, index);
+        data.position(offset);
+        index.position(index.size());
+        block = ByteBuffer.allocate(blockBytes);
+        compressed = new byte[blockBytes + blockBytes / 8 + 64];
+    }
+
+    static Path indexFile(Path file) {
+        Path name = file.getFileName();
+        return file.resolveSibling(Paths.get(name.toString() + INDEX_SUFFIX));
+    }
+
+    // the games before the last indexed block, plus those in it
+    private static long countGames(FileChannel data, FileChannel index) throws IOException {
+        long entries = index.size() / INDEX_ENTRY_BYTES;
+        if(entries == 0)
+            return 0;
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        readFully(index, entry, (entries - 1) * INDEX_ENTRY_BYTES);
+        long firstGame = entry.getLong(0);
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        readFully(data, header, entry.getLong(8));
+        if(header.getInt(0) != BLOCK_MAGIC)
+            throw new RuntimeException("Game record index doesn't match its data file");
+        return firstGame + header.getInt(4);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining())
+            if(channel.read(buffer, position + buffer.position()) < 0)
+                throw new RuntimeException("Unexpected end of game record file");
+    }
+
+    /**
+     * Adds a game and returns its number. Winner is null for a draw.
+     */
+    public synchronized long write(String white, String black, Color winner, Termination termination, List<Move> moves) throws IOException {
+        if(moves.size() > 0xFFFF)
+            throw new RuntimeException(String.format("Too many moves to record: %d", moves.size()));
+        byte[] whiteName = white.getBytes(StandardCharsets.UTF_8);
+        byte[] blackName = black.getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 2 + whiteName.length + 2 + blackName.length + 2 * moves.size();
+        if(block.remaining() < size) {
+            finishBlock();
+            if(block.capacity() < size)
+                block = ByteBuffer.allocate(size);
+        }
+        block.put((byte) (winner == null ? DRAW : winner == Color.WHITE ? WHITE_WON : BLACK_WON));
+        block.put((byte) termination.ordinal());
+        block.putShort((short) moves.size());
+        block.putShort((short) whiteName.length).put(whiteName);
+        block.putShort((short) blackName.length).put(blackName);
+        for(Move move:moves)
+            block.putShort(GameRecord.encode(move));
+        blockGames++;
+        return games++;
+    }
+
+    /**
+     * Records every game it hears about under the given player names. Attach a new one to each
+     * game.
+     */
+    public GameListener listener(String white, String black) {
+        List<Move> moves = new ArrayList<>();
+        return new GameListener() {
+            @Override
+            public void moveMade(int turn, Color color, Move move) {
+                moves.add(move);
+            }
+            @Override
+            public void gameEnded(Color winner, Termination termination, int turns) {
+                try {
+                    write(white, black, winner, termination, moves);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to record a game", e);
+                }
+            }
+        };
+    }
+
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Writes out every game so far, even if that leaves a short block.
+     */
+    public synchronized void flush() throws IOException {
+        finishBlock();
+        drain();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            data.force(false);
+            index.force(false);
+        } finally {
+            deflater.end();
+            data.close();
+            index.close();
+        }
+    }
+
+    // compresses the games gathered so far into the pending batch
+    private void finishBlock() throws IOException {
+        if(blockGames == 0)
+            return;
+        int rawLength = block.position();
+        if(compressed.length < rawLength + rawLength / 8 + 64)
+            compressed = new byte[rawLength + rawLength / 8 + 64];
+        deflater.reset();
+        deflater.setInput(block.array(), 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while(false == deflater.finished())
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        crc.reset();
+        crc.update(block.array(), 0, rawLength);
+
+        if(pending.remaining() < BLOCK_HEADER_BYTES + compressedLength || pendingIndex.remaining() < INDEX_ENTRY_BYTES)
+            drain();
+        pendingIndex.putLong(games - blockGames).putLong(offset);
+        offset += BLOCK_HEADER_BYTES + compressedLength;
+        if(pending.remaining() < BLOCK_HEADER_BYTES + compressedLength) {
+            // bigger than a whole batch; write it straight through
+            ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            putHeader(header, rawLength, compressedLength);
+            header.flip();
+            writeFully(data, new ByteBuffer[] { header, ByteBuffer.wrap(compressed, 0, compressedLength) });
+        } else {
+            putHeader(pending, rawLength, compressedLength);
+            pending.put(compressed, 0, compressedLength);
+        }
+        block.clear();
+        blockGames = 0;
+    }
+
+    private void putHeader(ByteBuffer buffer, int rawLength, int compressedLength) {
+        buffer.putInt(BLOCK_MAGIC).putInt(blockGames).putInt(rawLength).putInt(compressedLength).putInt((int) crc.getValue());
+    }
+
+    // writes the pending batch, data before index so an index entry never points past the data
+    private void drain() throws IOException {
+        pending.flip();
+        writeFully(data, new ByteBuffer[] { pending });
+        pending.clear();
+        pendingIndex.flip();
+        writeFully(index, new ByteBuffer[] { pendingIndex });
+        pendingIndex.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer[] buffers) throws IOException {
+        while(buffers[buffers.length - 1].hasRemaining())
+            channel.write(buffers);
+    }
+}
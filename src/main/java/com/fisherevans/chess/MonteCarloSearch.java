@@ -0,0 +1,412 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+import com.fisherevans.chess.Piece.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo tree search. Each playout walks down the tree by UCT, adds the children of the
+ * leaf it reaches, plays the rest of the game out with a cheap {@link Rollout} policy and
+ * credits the result to every node on the way. The root move played out most often is the
+ * answer.
+ *
+ * Nodes live in a few parallel int arrays with a node's children side by side, rather than one
+ * object each. Several threads play out at once, each on its own board. They only hold the
+ * tree lock to walk and update the tree, never during a rollout, and each node on a path being
+ * played out counts as a lost visit until the result is in, so the others look elsewhere
+ * meanwhile. After a move the subtree below it is kept, compacted, for the next search.
+ */
+public class MonteCarloSearch {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+    // UCT exploration weight, with scores between 0 and 1
+    private static final double EXPLORATION = 1.4;
+    // same as ChessGame: drawn once this many plies go by without a capture or pawn move
+    private static final int QUIET_PLY_LIMIT = 50;
+    private static final int ROOT = 0;
+    private static final int UNEXPANDED = -1;
+
+    private final Object lock = new Object();
+    private final Rollout rollout;
+    private final Worker[] workers;
+    private final ExecutorService executor;
+    private Tree tree;
+    private Tree spare;
+
+    private Board board;
+    private int sinceCapture;
+    private int sincePawn;
+    private final AtomicLong playouts = new AtomicLong();
+    private long playoutLimit;
+    private long deadline;
+    private volatile boolean stopped;
+
+    public MonteCarloSearch(int threads, int capacity, Rollout rollout, Random random) {
+        if(threads < 1)
+            throw new RuntimeException(String.format("Invalid thread count: %d", threads));
+        if(capacity < MoveList.MAX_MOVES + 1)
+            throw new RuntimeException(String.format("Invalid tree capacity: %d", capacity));
+        this.rollout = rollout;
+        tree = new Tree(capacity);
+        spare = new Tree(capacity);
+        workers = new Worker[threads];
+        for(int id = 0;id < threads;id++)
+            workers[id] = new Worker(new Random(random.nextLong()));
+        executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "playout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a new game from the position, with no moves since a capture or pawn move, and
+     * throws the tree away.
+     */
+    public void reset(Board board) {
+        this.board = board.copy();
+        sinceCapture = 0;
+        sincePawn = 0;
+        tree.clear();
+    }
+
+    /**
+     * Follows a move played by either side, keeping what is known below it.
+     */
+    public void advance(int move) {
+        int child = UNEXPANDED;
+        if(tree.firstChild[ROOT] != UNEXPANDED)
+            for(int node = tree.firstChild[ROOT];node < tree.firstChild[ROOT] + tree.childCount[ROOT];node++)
+                if(tree.moves[node] == move)
+                    child = node;
+        if(child == UNEXPANDED) {
+            tree.clear();
+        } else {
+            spare.copySubtree(tree, child);
+            Tree old = tree;
+            tree = spare;
+            spare = old;
+        }
+        sinceCapture = Move.isCapture(move) ? 1 : sinceCapture + 1;
+        sincePawn = Move.piece(move).type == Type.PAWN ? 1 : sincePawn + 1;
+        board.makeMove(move);
+    }
+
+    /**
+     * Plays out from the current position until the limits' playout count (as nodes) or time
+     * runs out, or until stopped. The depth limit doesn't apply.
+     */
+    public Result search(SearchLimits limits) {
+        long start = System.nanoTime();
+        stopped = false;
+        playouts.set(0);
+        playoutLimit = limits.nodes == 0 ? Long.MAX_VALUE : limits.nodes;
+        deadline = limits.millis == 0 ? Long.MAX_VALUE : start + limits.millis * 1000000L;
+
+        List<Future<?>> running = new ArrayList<>(workers.length - 1);
+        for(int id = 1;id < workers.length;id++) {
+            Worker worker = workers[id];
+            worker.board = board.copy();
+            running.add(executor.submit(() -> playOuts(worker)));
+        }
+        workers[0].board = board;
+        try {
+            playOuts(workers[0]);
+        } finally {
+            stopped = true;
+        }
+        for(Future<?> future:running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for playout threads", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("A playout thread failed", e.getCause());
+            }
+        }
+
+        int best = UNEXPANDED;
+        if(tree.firstChild[ROOT] != UNEXPANDED)
+            for(int node = tree.firstChild[ROOT];node < tree.firstChild[ROOT] + tree.childCount[ROOT];node++)
+                if(best == UNEXPANDED || tree.visits[node] > tree.visits[best])
+                    best = node;
+        long millis = (System.nanoTime() - start) / 1000000L;
+        if(best == UNEXPANDED)
+            return new Result(Move.NONE, 0, playouts.get(), millis, tree.size);
+        return new Result(tree.moves[best], tree.visits[best] == 0 ? 0 : tree.scores[best] / (2.0 * tree.visits[best]),
+                playouts.get(), millis, tree.size);
+    }
+
+    /**
+     * Asks a running search to return as soon as possible. Safe to call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public void shutdown() {
+        stop();
+        if(executor != null)
+            executor.shutdownNow();
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    private void playOuts(Worker worker) {
+        while(false == stopped) {
+            playOut(worker);
+            if(playouts.incrementAndGet() >= playoutLimit || System.nanoTime() >= deadline)
+                stopped = true;
+        }
+    }
+
+    private void playOut(Worker worker) {
+        Board board = worker.board;
+        Color rootTurn = board.getTurn();
+        int sinceCapture = this.sinceCapture;
+        int sincePawn = this.sincePawn;
+        int length = 0;
+        boolean finished = false;
+        Color winner = null;
+
+        synchronized(lock) {
+            int node = ROOT;
+            tree.visits[node]++;
+            worker.path[length++] = node;
+            while(true) {
+                if(sinceCapture > QUIET_PLY_LIMIT || sincePawn > QUIET_PLY_LIMIT) {
+                    finished = true;
+                    break;
+                }
+                if(tree.firstChild[node] == UNEXPANDED) {
+                    // a leaf is only expanded on its second visit, so the tree grows where it is used
+                    if((node != ROOT && tree.visits[node] == 1) || false == expand(node, board, worker.moves))
+                        break;
+                }
+                if(tree.childCount[node] == 0) {
+                    finished = true;
+                    winner = board.isChecked(board.getTurn()) ? board.getTurn().opposite() : null;
+                    break;
+                }
+                node = select(node);
+                tree.visits[node]++;
+                if(length == worker.path.length)
+                    worker.path = Arrays.copyOf(worker.path, length * 2);
+                worker.path[length++] = node;
+                int move = tree.moves[node];
+                sinceCapture = Move.isCapture(move) ? 1 : sinceCapture + 1;
+                sincePawn = Move.piece(move).type == Type.PAWN ? 1 : sincePawn + 1;
+                board.makeMove(move);
+            }
+        }
+
+        int played = length - 1;
+        while(false == finished) {
+            MoveList moves = worker.moves;
+            if(board.generateMoves(board.getTurn(), true, moves) == 0) {
+                winner = board.isChecked(board.getTurn()) ? board.getTurn().opposite() : null;
+                break;
+            }
+            int move = rollout.choose(board, moves, worker.random);
+            sinceCapture = Move.isCapture(move) ? 1 : sinceCapture + 1;
+            sincePawn = Move.piece(move).type == Type.PAWN ? 1 : sincePawn + 1;
+            board.makeMove(move);
+            played++;
+            finished = sinceCapture > QUIET_PLY_LIMIT || sincePawn > QUIET_PLY_LIMIT;
+        }
+        for(;played > 0;played--)
+            board.unmakeMove();
+
+        synchronized(lock) {
+            // the visits were counted on the way down; only the result is still owed
+            Color mover = rootTurn.opposite();
+            for(int id = 0;id < length;id++) {
+                tree.scores[worker.path[id]] += winner == null ? 1 : winner == mover ? 2 : 0;
+                mover = mover.opposite();
+            }
+        }
+    }
+
+    private boolean expand(int node, Board board, MoveList moves) {
+        int count = board.generateMoves(board.getTurn(), true, moves);
+        if(tree.size + count > tree.capacity())
+            return false;
+        tree.firstChild[node] = tree.size;
+        tree.childCount[node] = count;
+        for(int id = 0;id < count;id++)
+            tree.add(moves.get(id), 0, 0);
+        return true;
+    }
+
+    // scores are in half points for whoever made the move into the node
+    private int select(int node) {
+        double logVisits = Math.log(tree.visits[node]);
+        int best = UNEXPANDED;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int child = tree.firstChild[node];child < tree.firstChild[node] + tree.childCount[node];child++) {
+            int visits = tree.visits[child];
+            if(visits == 0)
+                return child;
+            double value = tree.scores[child] / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+            if(value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks the next move of a playout from the legal moves.
+     */
+    public interface Rollout {
+        int choose(Board board, MoveList moves, Random random);
+
+        /**
+         * Any move, like {@link GameIntelligence#dummy()}.
+         */
+        static Rollout random() {
+            return (board, moves, random) -> moves.get(random.nextInt(moves.size()));
+        }
+
+        /**
+         * The most valuable capture, otherwise any move, like {@link GameIntelligence#greedy()}.
+         */
+        static Rollout greedy() {
+            return (board, moves, random) -> {
+                int best = Move.NONE;
+                int bestValue = 0;
+                int ties = 0;
+                for(int id = 0;id < moves.size();id++) {
+                    int move = moves.get(id);
+                    if(false == Move.isCapture(move))
+                        continue;
+                    int value = Move.captured(move).type.value;
+                    if(value > bestValue) {
+                        best = move;
+                        bestValue = value;
+                        ties = 1;
+                    } else if(value == bestValue && random.nextInt(++ties) == 0) {
+                        best = move;
+                    }
+                }
+                return best == Move.NONE ? moves.get(random.nextInt(moves.size())) : best;
+            };
+        }
+    }
+
+    public static class Result {
+        public final int move;
+        // share of the move's playouts won, draws counting half, for the side to move
+        public final double score;
+        public final long playouts;
+        public final long millis;
+        public final int treeSize;
+
+        public Result(int move, double score, long playouts, long millis, int treeSize) {
+            this.move = move;
+            this.score = score;
+            this.playouts = playouts;
+            this.millis = millis;
+            this.treeSize = treeSize;
+        }
+
+        public Move getMove() {
+            return move == Move.NONE ? null : Move.unpack(move);
+        }
+
+        public long getPlayoutsPerSecond() {
+            return millis == 0 ? playouts * 1000 : playouts * 1000 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("score %.3f, %d playouts in %dms (%d per second), %d nodes",
+                    score, playouts, millis, getPlayoutsPerSecond(), treeSize);
+        }
+    }
+
+    private static class Worker {
+        private final Random random;
+        private final MoveList moves = new MoveList();
+        private int[] path = new int[256];
+        private Board board;
+
+        private Worker(Random random) {
+            this.random = random;
+        }
+    }
+
+    /**
+     * Node n is the move that led to it, where its children start (UNEXPANDED until they are
+     * added) and how many there are, its visits and its score. Node 0 is the root.
+     */
+    private static class Tree {
+        private final int[] moves;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] visits;
+        private final int[] scores;
+        private int size;
+
+        private Tree(int capacity) {
+            moves = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            visits = new int[capacity];
+            scores = new int[capacity];
+            clear();
+        }
+
+        private int capacity() {
+            return moves.length;
+        }
+
+        private void clear() {
+            size = 0;
+            add(Move.NONE, 0, 0);
+        }
+
+        private int add(int move, int visits, int score) {
+            moves[size] = move;
+            firstChild[size] = UNEXPANDED;
+            childCount[size] = 0;
+            this.visits[size] = visits;
+            scores[size] = score;
+            return size++;
+        }
+
+        /**
+         * Replaces this tree with the subtree of source below node, breadth first so children
+         * stay side by side.
+         */
+        private void copySubtree(Tree source, int node) {
+            size = 0;
+            add(source.moves[node], source.visits[node], source.scores[node]);
+            // until a node is reached, firstChild holds where it came from in the source
+            firstChild[ROOT] = node;
+            for(int id = 0;id < size;id++) {
+                int from = firstChild[id];
+                if(source.firstChild[from] == UNEXPANDED) {
+                    firstChild[id] = UNEXPANDED;
+                    continue;
+                }
+                firstChild[id] = size;
+                childCount[id] = source.childCount[from];
+                for(int child = source.firstChild[from];child < source.firstChild[from] + source.childCount[from];child++)
+                    firstChild[add(source.moves[child], source.visits[child], source.scores[child])] = child;
+            }
+        }
+    }
+}
@@ -4,6 +4,15 @@ package com.fisherevans.chess;
  * Created by fisher.evans on 1/8/16.
  */
 public class Move {
+    // packed layout: from (6 bits) | to (6) | piece (4) | captured piece + 1 (4, 0 for none) | flags
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PIECE_MASK = 0xF;
+    private static final int TO_SHIFT = 6;
+    private static final int PIECE_SHIFT = 12;
+    private static final int CAPTURED_SHIFT = 16;
+    public static final int FLAG_CAPTURE = 1 << 20;
+    public static final int NONE = 0;
+
     public final Position from, to;
     public final Piece piece, captured;
 
@@ -16,6 +25,42 @@ public class Move {
         this.captured = captured;
     }
 
+    public int pack() {
+        return pack(from.index, to.index, piece, captured);
+    }
+
+    public static Move unpack(int move) {
+        return new Move(Position.of(fromSquare(move)), Position.of(toSquare(move)), piece(move), captured(move));
+    }
+
+    public static int pack(int from, int to, Piece piece, Piece captured) {
+        int move = from | (to << TO_SHIFT) | (piece.index << PIECE_SHIFT);
+        if(captured != null)
+            move |= ((captured.index + 1) << CAPTURED_SHIFT) | FLAG_CAPTURE;
+        return move;
+    }
+
+    public static int fromSquare(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int toSquare(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    public static Piece piece(int move) {
+        return Piece.fromIndex((move >>> PIECE_SHIFT) & PIECE_MASK);
+    }
+
+    public static Piece captured(int move) {
+        int captured = (move >>> CAPTURED_SHIFT) & PIECE_MASK;
+        return captured == 0 ? null : Piece.fromIndex(captured - 1);
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & FLAG_CAPTURE) != 0;
+    }
+
     @Override
     public int hashCode() {
         return from.hashCode() + to.hashCode()*31 + piece.hashCode()*111 + (captured == null ? 0 : captured.hashCode()*317);
@@ -34,7 +79,7 @@ public class Move {
 
     @Override
     public String toString() {
-        return String.format("%s:%s>%s[%]",
+        return String.format("%s:%s>%s[%s]",
                 piece.toString(), from.toString(), to.toString(), captured == null ? "" : captured);
     }
 
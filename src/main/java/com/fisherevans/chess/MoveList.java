@@ -0,0 +1,58 @@
+package com.fisherevans.chess;
+
+/**
+ * Fixed capacity buffer of packed moves (see {@link Move#pack}). Meant to be allocated once and
+ * reused, e.g. one per search ply, so move generation creates no garbage.
+ */
+public class MoveList {
+    // comfortably above the most moves any reachable position can have
+    public static final int MAX_MOVES = 256;
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(MAX_MOVES);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public void swap(int a, int b) {
+        int move = moves[a];
+        moves[a] = moves[b];
+        moves[b] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for(int id = 0;id < size;id++)
+            if(moves[id] == move)
+                return true;
+        return false;
+    }
+}
@@ -3,152 +3,258 @@ package com.fisherevans.chess;
 import com.fisherevans.chess.Piece.BoardMap;
 import com.fisherevans.chess.Piece.Color;
 import com.fisherevans.chess.Piece.Type;
-import javafx.geometry.Pos;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Consumer;
-import java.util.function.Function;
 
 /**
  * Created by fisher.evans on 1/11/16.
  */
 public class MoveManager {
+    private static final int[][] KNIGHT_STEPS = { {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2} };
+    private static final int[][] KING_STEPS = { {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1} };
+    private static final int[][] ROOK_DIRECTIONS = { {1, 0}, {-1, 0}, {0, 1}, {0, -1} };
+    private static final int[][] BISHOP_DIRECTIONS = { {1, 1}, {1, -1}, {-1, 1}, {-1, -1} };
 
-    public static MoveFunction function(Piece piece) {
-        switch (piece.type) {
-            case PAWN: { return pawn(piece.color); }
-            case ROOK: { return rook(piece.color); }
-            case KNIGHT: { return knight(piece.color); }
-            case BISHOP: { return bishop(piece.color); }
-            case QUEEN: { return queen(piece.color); }
-            case KING: { return king(piece.color); }
-            default: { return dummy(); }
+    // per-rank seeds known to find every magic in a handful of tries, keeping class loading quick
+    private static final long[] MAGIC_SEEDS = { 728, 10316, 55013, 32803, 12281, 15100, 16645, 255 };
+
+    private static final long[] KNIGHT_ATTACKS = new long[Bitboards.SQUARES];
+    private static final long[] KING_ATTACKS = new long[Bitboards.SQUARES];
+    private static final long[][] PAWN_ATTACKS = new long[Color.values().length][Bitboards.SQUARES];
+    private static final Magic[] ROOK_MAGICS = new Magic[Bitboards.SQUARES];
+    private static final Magic[] BISHOP_MAGICS = new Magic[Bitboards.SQUARES];
+    private static final long[][] BETWEEN = new long[Bitboards.SQUARES][Bitboards.SQUARES];
+    private static final long[][] LINE = new long[Bitboards.SQUARES][Bitboards.SQUARES];
+
+    static {
+        for(int square = 0;square < Bitboards.SQUARES;square++) {
+            KNIGHT_ATTACKS[square] = steps(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = steps(square, KING_STEPS);
+            PAWN_ATTACKS[Color.WHITE.ordinal()][square] = steps(square, new int[][] { {-1, 1}, {1, 1} });
+            PAWN_ATTACKS[Color.BLACK.ordinal()][square] = steps(square, new int[][] { {-1, -1}, {1, -1} });
+            ROOK_MAGICS[square] = new Magic(square, ROOK_DIRECTIONS);
+            BISHOP_MAGICS[square] = new Magic(square, BISHOP_DIRECTIONS);
+        }
+        for(int from = 0;from < Bitboards.SQUARES;from++) {
+            for(int to = 0;to < Bitboards.SQUARES;to++) {
+                long ends = Bitboards.bit(from) | Bitboards.bit(to);
+                if(Bitboards.isSet(rookAttacks(from, Bitboards.EMPTY), to)) {
+                    BETWEEN[from][to] = rookAttacks(from, ends) & rookAttacks(to, ends);
+                    LINE[from][to] = (rookAttacks(from, Bitboards.EMPTY) & rookAttacks(to, Bitboards.EMPTY)) | ends;
+                } else if(Bitboards.isSet(bishopAttacks(from, Bitboards.EMPTY), to)) {
+                    BETWEEN[from][to] = bishopAttacks(from, ends) & bishopAttacks(to, ends);
+                    LINE[from][to] = (bishopAttacks(from, Bitboards.EMPTY) & bishopAttacks(to, Bitboards.EMPTY)) | ends;
+                }
+            }
         }
     }
 
-    private static MoveFunction dummy() {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            return positions;
-        };
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
     }
 
-    private static MoveFunction pawn(final Color color) {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            if(position.y == (color == Color.WHITE ? Position.MAX_POSITION : Position.MIN_POSITION))
-                return positions;
-            int sign = color == Color.WHITE ? +1 : -1;
-            boolean initial = color == Color.WHITE
-                    ? position.y == Position.MIN_POSITION+1
-                    : position.y == Position.MAX_POSITION-1;
-            Position oneUp = new Position(position.x, position.y + 1 * sign);
-            if(boardMap.getPiece(oneUp) == null) {
-                positions.add(oneUp);
-                if(initial) {
-                    Position twoUp = new Position(position.x, position.y + 2 * sign);
-                    if(boardMap.getPiece(twoUp) == null)
-                        positions.add(twoUp);
-                }
-            }
-            Consumer<Position> diagF = diagP -> {
-                Piece captured = boardMap.getPiece(diagP);
-                if(captured != null && captured.color != color)
-                    positions.add(diagP);
-            };
-            if(position.x != Position.MIN_POSITION) diagF.accept(new Position(position.x-1, oneUp.y));
-            if(position.x != Position.MAX_POSITION) diagF.accept(new Position(position.x+1, oneUp.y));
-            return positions;
-        };
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
     }
 
-    private static MoveFunction rook(final Color color) {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            for(int delta = 1;delta >= -1;delta -= 2) {
-                for(int x = position.x+delta;x >= Position.MIN_POSITION && x <= Position.MAX_POSITION;x += delta)
-                    if(stepInterpMove(color, new Position(x, position.y), positions, boardMap)) break;
-                for(int y = position.y+delta;y >= Position.MIN_POSITION && y <= Position.MAX_POSITION;y += delta)
-                    if(stepInterpMove(color, new Position(position.x, y), positions, boardMap)) break;
-            }
-            return positions;
-        };
+    public static long pawnAttacks(Color color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied) | BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * Squares strictly between two squares sharing a rank, file or diagonal, otherwise empty.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * The whole rank, file or diagonal running through both squares, otherwise empty.
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Single and (from the starting rank) double pawn pushes onto empty squares. A pawn on
+     * the far rank has nowhere to go.
+     */
+    public static long pawnPushes(Color color, int square, long occupied) {
+        int y = Bitboards.y(square);
+        if(color == Color.WHITE) {
+            if(y == Position.MAX_POSITION || Bitboards.isSet(occupied, square + 8))
+                return Bitboards.EMPTY;
+            long pushes = Bitboards.bit(square + 8);
+            if(y == Position.MIN_POSITION+1 && false == Bitboards.isSet(occupied, square + 16))
+                pushes |= Bitboards.bit(square + 16);
+            return pushes;
+        } else {
+            if(y == Position.MIN_POSITION || Bitboards.isSet(occupied, square - 8))
+                return Bitboards.EMPTY;
+            long pushes = Bitboards.bit(square - 8);
+            if(y == Position.MAX_POSITION-1 && false == Bitboards.isSet(occupied, square - 16))
+                pushes |= Bitboards.bit(square - 16);
+            return pushes;
+        }
+    }
+
+    /**
+     * Squares attacked by a piece of the given type and color standing on square.
+     */
+    public static long attacks(Type type, Color color, int square, long occupied) {
+        switch (type) {
+            case PAWN: { return pawnAttacks(color, square); }
+            case ROOK: { return rookAttacks(square, occupied); }
+            case KNIGHT: { return knightAttacks(square); }
+            case BISHOP: { return bishopAttacks(square, occupied); }
+            case QUEEN: { return queenAttacks(square, occupied); }
+            case KING: { return kingAttacks(square); }
+            default: { return Bitboards.EMPTY; }
+        }
     }
 
-    private static MoveFunction bishop(final Color color) {
+    /**
+     * Every square the piece may move to, ignoring whether its own king is left in check.
+     */
+    public static long targets(Piece piece, int square, long own, long enemy) {
+        if(piece.type == Type.PAWN)
+            return pawnPushes(piece.color, square, own | enemy) | (pawnAttacks(piece.color, square) & enemy);
+        return attacks(piece.type, piece.color, square, own | enemy) & ~own;
+    }
+
+    public static MoveFunction function(Piece piece) {
         return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            for(int signX = 1;signX >= -1;signX -= 2) {
-                for(int signY = 1;signY >= -1;signY -= 2) {
-                    for(int d = 1;d < Position.MAX_POSITION;d++) {
-                        int newX = position.x + d*signX;
-                        int newY = position.y + d*signY;
-                        if(Position.inRange(newX, newY) == false || stepInterpMove(color, new Position(newX, newY), positions, boardMap))
-                            break;
-                    }
+            long own = Bitboards.EMPTY, enemy = Bitboards.EMPTY;
+            for(int square = 0;square < Bitboards.SQUARES;square++) {
+                Piece other = boardMap.getPiece(Position.of(square));
+                if(other != null) {
+                    if(other.color == piece.color)
+                        own |= Bitboards.bit(square);
+                    else
+                        enemy |= Bitboards.bit(square);
                 }
             }
+            Set<Position> positions = new HashSet();
+            long targets = targets(piece, Bitboards.square(position), own, enemy);
+            for(;targets != Bitboards.EMPTY;targets &= targets - 1) {
+                int to = Bitboards.lowest(targets);
+                positions.add(Position.of(to));
+            }
             return positions;
         };
     }
 
-    private static MoveFunction queen(final Color color) {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            positions.addAll(rook(color).calc(position, boardMap));
-            positions.addAll(bishop(color).calc(position, boardMap));
-            return positions;
-        };
+    private static long steps(int square, int[][] steps) {
+        long bitboard = Bitboards.EMPTY;
+        for(int[] step:steps) {
+            int x = Bitboards.x(square) + step[0], y = Bitboards.y(square) + step[1];
+            if(Position.inRange(x, y))
+                bitboard |= Bitboards.bit(Bitboards.square(x, y));
+        }
+        return bitboard;
     }
 
-    private static MoveFunction king(final Color color) {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            for(int dx = -1;dx <= 1;dx++) {
-                for(int dy = -1;dy <= 1;dy++) {
-                    if(dy == 0 && dx == 0)
-                        continue;
-                    int newX = position.x + dx, newY = position.y + dy;
-                    if(Position.inRange(newX, newY)) {
-                        Position newPosition = new Position(newX, newY);
-                        stepInterpMove(color, newPosition, positions, boardMap);
-                    }
-                }
+    private static long slide(int square, int[][] directions, long occupied) {
+        long bitboard = Bitboards.EMPTY;
+        for(int[] direction:directions) {
+            int x = Bitboards.x(square) + direction[0], y = Bitboards.y(square) + direction[1];
+            for(;Position.inRange(x, y);x += direction[0], y += direction[1]) {
+                int to = Bitboards.square(x, y);
+                bitboard |= Bitboards.bit(to);
+                if(Bitboards.isSet(occupied, to))
+                    break;
             }
-            return positions;
-        };
+        }
+        return bitboard;
     }
 
-    private static MoveFunction knight(final Color color) {
-        return (position, boardMap) -> {
-            Set<Position> positions = new HashSet();
-            for(int sign = 1;sign >= -1;sign -= 2) {
-                for(int smallDelta = 1;smallDelta >= -1;smallDelta -= 2) {
-                    int largeDelta = 2*sign;
-                    int newX1 = position.x + smallDelta, newY1 = position.y + largeDelta;
-                    if(Position.inRange(newX1, newY1))
-                        stepInterpMove(color, new Position(newX1, newY1), positions, boardMap);
-                    int newX2 = position.x + largeDelta, newY2 = position.y + smallDelta;
-                    if(Position.inRange(newX2, newY2))
-                        stepInterpMove(color, new Position(newX2, newY2), positions, boardMap);
+    /**
+     * Perfect hash from the blockers on a slider's rays to its attack set. The relevant
+     * occupancy (rays minus the board edge) is multiplied by a magic number and the top bits
+     * index straight into a precomputed table.
+     */
+    private static class Magic {
+        private final long mask;
+        private final long magic;
+        private final int shift;
+        private final long[] attacks;
+
+        private Magic(int square, int[][] directions) {
+            mask = relevantOccupancy(square, directions);
+            int bits = Bitboards.count(mask);
+            shift = Bitboards.SQUARES - bits;
+
+            int size = 1 << bits;
+            long[] occupancies = new long[size];
+            long[] references = new long[size];
+            long subset = Bitboards.EMPTY;
+            for(int id = 0;id < size;id++) {
+                occupancies[id] = subset;
+                references[id] = slide(square, directions, subset);
+                subset = (subset - mask) & mask;
+            }
+
+            long seed = MAGIC_SEEDS[Bitboards.y(square)];
+            long[] table = new long[size];
+            int[] epoch = new int[size];
+            for(int attempt = 1;;attempt++) {
+                long candidate = Bitboards.EMPTY;
+                while(Bitboards.count((mask * candidate) >>> 56) < 6) {
+                    candidate = -1L;
+                    for(int draw = 0;draw < 3;draw++) {
+                        seed ^= seed >>> 12;
+                        seed ^= seed << 25;
+                        seed ^= seed >>> 27;
+                        candidate &= seed * 2685821657736338717L;
+                    }
+                }
+                boolean collision = false;
+                for(int id = 0;id < size && false == collision;id++) {
+                    int index = (int) ((occupancies[id] * candidate) >>> shift);
+                    if(epoch[index] != attempt) {
+                        epoch[index] = attempt;
+                        table[index] = references[id];
+                    } else if(table[index] != references[id]) {
+                        collision = true;
+                    }
+                }
+                if(false == collision) {
+                    magic = candidate;
+                    attacks = table;
+                    return;
                 }
             }
-            return positions;
-        };
-    }
+        }
 
-    private static boolean stepInterpMove(Color thisColor, Position newPosition, Set<Position> positions, BoardMap boardMap) {
-        Piece captured = boardMap.getPiece(newPosition);
-        if(captured == null)
-            positions.add(newPosition);
-        else {
-            if(captured.color != thisColor)
-                positions.add(newPosition);
-            return true;
+        private long attacks(long occupied) {
+            return attacks[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+
+        private static long relevantOccupancy(int square, int[][] directions) {
+            long bitboard = Bitboards.EMPTY;
+            for(int[] direction:directions) {
+                int x = Bitboards.x(square) + direction[0], y = Bitboards.y(square) + direction[1];
+                while(Position.inRange(x + direction[0], y + direction[1])) {
+                    bitboard |= Bitboards.bit(Bitboards.square(x, y));
+                    x += direction[0];
+                    y += direction[1];
+                }
+            }
+            return bitboard;
         }
-        return false;
     }
 
     @FunctionalInterface
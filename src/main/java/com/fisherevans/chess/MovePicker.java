@@ -0,0 +1,143 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+/**
+ * Hands out the legal moves of one search node, likely best first: the hash move, captures by
+ * MVV-LVA, the killer moves, then the remaining quiet moves by history score. Each group is only
+ * generated once the ones before it have been searched without a cutoff, so a node that cuts off
+ * on the hash move never generates moves at all. One instance per ply, reused between nodes.
+ */
+class MovePicker {
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int DONE = 7;
+
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveList.MAX_MOVES];
+    // bonus per piece index and target square for quiet moves that caused cutoffs, owned by Search
+    private final int[][] history;
+
+    private Board board;
+    private Color color;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private boolean capturesOnly;
+    private int stage;
+    private int next;
+
+    MovePicker(int[][] history) {
+        this.history = history;
+    }
+
+    /**
+     * Starts over for a new node. The hash move and killers may be Move.NONE, and need not be
+     * legal here; they are checked before being handed out.
+     */
+    void reset(Board board, Color color, int hashMove, int firstKiller, int secondKiller) {
+        this.board = board;
+        this.color = color;
+        this.hashMove = hashMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        capturesOnly = false;
+        stage = HASH;
+    }
+
+    /**
+     * Starts over for a node where only captures are wanted, by MVV-LVA.
+     */
+    void resetCaptures(Board board, Color color) {
+        reset(board, color, Move.NONE, Move.NONE, Move.NONE);
+        capturesOnly = true;
+        stage = GENERATE_CAPTURES;
+    }
+
+    /**
+     * The next move to search, or Move.NONE once every legal move has been handed out.
+     */
+    int next() {
+        while(true) {
+            switch(stage) {
+                case HASH:
+                    stage = GENERATE_CAPTURES;
+                    if(board.isLegal(hashMove))
+                        return hashMove;
+                    break;
+                case GENERATE_CAPTURES:
+                    board.generateMoves(color, true, board.getOccupancy(color.opposite()), moves);
+                    for(int id = 0;id < moves.size();id++)
+                        scores[id] = mvvLva(moves.get(id));
+                    next = 0;
+                    stage = CAPTURES;
+                    break;
+                case CAPTURES:
+                    if(next < moves.size()) {
+                        int move = pickBest();
+                        if(move != hashMove)
+                            return move;
+                        break;
+                    }
+                    stage = capturesOnly ? DONE : FIRST_KILLER;
+                    break;
+                case FIRST_KILLER:
+                    stage = SECOND_KILLER;
+                    if(firstKiller != hashMove && board.isLegal(firstKiller))
+                        return firstKiller;
+                    break;
+                case SECOND_KILLER:
+                    stage = GENERATE_QUIETS;
+                    if(secondKiller != hashMove && secondKiller != firstKiller && board.isLegal(secondKiller))
+                        return secondKiller;
+                    break;
+                case GENERATE_QUIETS:
+                    board.generateMoves(color, true, ~board.getOccupied(), moves);
+                    for(int id = 0;id < moves.size();id++) {
+                        int move = moves.get(id);
+                        scores[id] = history[Move.piece(move).index][Move.toSquare(move)];
+                    }
+                    next = 0;
+                    stage = QUIETS;
+                    break;
+                case QUIETS:
+                    if(next < moves.size()) {
+                        int move = pickBest();
+                        if(move != hashMove && move != firstKiller && move != secondKiller)
+                            return move;
+                        break;
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return Move.NONE;
+            }
+        }
+    }
+
+    /**
+     * Most valuable victim first, least valuable attacker among equals.
+     */
+    static int mvvLva(int move) {
+        return Move.captured(move).type.value * 8 - Move.piece(move).type.value;
+    }
+
+    // selection sort one step at a time, since a cutoff usually leaves most of the list unsorted
+    private int pickBest() {
+        int best = next;
+        for(int id = next + 1;id < moves.size();id++)
+            if(scores[id] > scores[best])
+                best = id;
+        int move = moves.get(best);
+        moves.set(best, moves.get(next));
+        scores[best] = scores[next];
+        moves.set(next, move);
+        next++;
+        return move;
+    }
+}
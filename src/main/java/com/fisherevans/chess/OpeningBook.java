@@ -0,0 +1,221 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Moves worth playing in positions seen often enough before, read straight out of a memory
+ * mapped file. The file is a 16 byte header (magic, version, entry count) followed by 16 byte
+ * entries of position hash, packed move and weight, big-endian and sorted by hash then move, so
+ * a lookup is a binary search over the mapped pages with nothing read into objects.
+ *
+ * <pre>
+ *   OpeningBook file records games-file [plies] [min-count]  build a book from recorded games
+ *   OpeningBook file [games] [plies] [playouts] [seed]      play Monte Carlo self-play games and build from those
+ * </pre>
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x43424F4B; // "CBOK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    private static final String ERR_FMT_FILE = "Invalid opening book: %s";
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if(length < HEADER_BYTES || length > Integer.MAX_VALUE)
+                throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            long count = buffer.getLong(8);
+            if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || HEADER_BYTES + count * ENTRY_BYTES != length)
+                throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+            return new OpeningBook(buffer, (int) count);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * A move for the position, drawn at random in proportion to the entries' weights, or
+     * Move.NONE if the position isn't in the book.
+     */
+    public int probe(long hash, Random random) {
+        int first = find(hash);
+        long total = 0;
+        for(int id = first;id < size && hash(id) == hash;id++)
+            total += weight(id);
+        if(total == 0)
+            return Move.NONE;
+        long pick = (long) (random.nextDouble() * total);
+        for(int id = first;;id++) {
+            pick -= weight(id);
+            if(pick < 0)
+                return move(id);
+        }
+    }
+
+    /**
+     * Total weight of the position's entries, 0 if it isn't in the book.
+     */
+    public long weight(long hash) {
+        long total = 0;
+        for(int id = find(hash);id < size && hash(id) == hash;id++)
+            total += weight(id);
+        return total;
+    }
+
+    // index of the first entry not below hash
+    private int find(long hash) {
+        int low = 0, high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(hash(middle) < hash)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private long hash(int entry) {
+        return entries.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+    }
+
+    private int move(int entry) {
+        return entries.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 8);
+    }
+
+    private int weight(int entry) {
+        return entries.getInt(HEADER_BYTES + entry * ENTRY_BYTES + 12);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length == 0 || (args.length == 2 && args[1].equals("records"))) {
+            System.out.println("Usage: OpeningBook file records games-file [plies] [min-count]");
+            System.out.println("       OpeningBook file [games] [plies] [playouts] [seed]");
+            System.exit(1);
+        }
+        if(args.length > 1 && args[1].equals("records")) {
+            Builder builder = new Builder(args.length > 3 ? Integer.parseInt(args[3]) : Builder.DEFAULT_PLIES)
+                    .withMinCount(args.length > 4 ? Integer.parseInt(args[4]) : 1);
+            long games = 0;
+            try(GameRecordReader reader = GameRecordReader.open(Paths.get(args[2]))) {
+                while(reader.hasNext()) {
+                    GameRecord record = reader.next();
+                    builder.addGame(record.getMoves(), record.winner);
+                    games++;
+                }
+            }
+            builder.write(Paths.get(args[0]));
+            System.out.println(String.format("Wrote %d entries from %d recorded games to %s", builder.size(), games, args[0]));
+            return;
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : Builder.DEFAULT_PLIES;
+        SearchLimits limits = SearchLimits.nodes(args.length > 3 ? Long.parseLong(args[3]) : 200);
+        Random random = new Random(args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime());
+        Builder builder = new Builder(plies);
+        for(int game = 0;game < games;game++) {
+            ChessGame chessGame = new ChessGame(GameIntelligence.monteCarlo(limits, 1, new Random(random.nextLong())),
+                    GameIntelligence.monteCarlo(limits, 1, new Random(random.nextLong())));
+            chessGame.play();
+            builder.addGame(chessGame.getMoves(), chessGame.getWinner());
+        }
+        builder.write(Paths.get(args[0]));
+        System.out.println(String.format("Wrote %d entries from %d games to %s", builder.size(), games, args[0]));
+    }
+
+    /**
+     * Collects the opening moves of finished games. Every move in the first plies of a game
+     * adds to its position's entry 2 if its side went on to win, 1 for a draw and nothing for a
+     * loss; moves seen fewer than minCount times are left out of the book.
+     */
+    public static class Builder {
+        public static final int DEFAULT_PLIES = 16;
+
+        private final int plies;
+        private final Map<Long, Map<Integer, int[]>> positions = new HashMap<>();
+        private int minCount = 1;
+
+        public Builder(int plies) {
+            this.plies = plies;
+        }
+
+        public Builder withMinCount(int minCount) {
+            this.minCount = minCount;
+            return this;
+        }
+
+        /**
+         * Adds a game played from the default board, as its moves and winner (null for a draw).
+         */
+        public void addGame(List<Move> moves, Color winner) {
+            Board board = Board.createDefaultBoard();
+            for(int ply = 0;ply < Math.min(plies, moves.size());ply++) {
+                Move move = moves.get(ply);
+                // times played, weight
+                int[] entry = positions.computeIfAbsent(board.getHash(), hash -> new HashMap<>())
+                        .computeIfAbsent(move.pack(), packed -> new int[2]);
+                entry[0]++;
+                entry[1] += winner == null ? 1 : winner == move.piece.color ? 2 : 0;
+                board.makeMove(move);
+            }
+        }
+
+        /**
+         * Entries the book would have if written now.
+         */
+        public int size() {
+            int size = 0;
+            for(Map<Integer, int[]> moves:positions.values())
+                for(int[] entry:moves.values())
+                    if(entry[0] >= minCount && entry[1] > 0)
+                        size++;
+            return size;
+        }
+
+        public void write(Path file) throws IOException {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(size());
+                for(Map.Entry<Long, Map<Integer, int[]>> position:new TreeMap<>(positions).entrySet()) {
+                    for(Map.Entry<Integer, int[]> move:new TreeMap<>(position.getValue()).entrySet()) {
+                        int[] entry = move.getValue();
+                        if(entry[0] < minCount || entry[1] == 0)
+                            continue;
+                        out.writeLong(position.getKey());
+                        out.writeInt(move.getKey());
+                        out.writeInt(entry[1]);
+                    }
+                }
+            }
+        }
+    }
+}
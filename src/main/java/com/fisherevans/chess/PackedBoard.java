@@ -0,0 +1,88 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed size binary form of a position, for storing and sending boards in bulk. The layout is
+ * the occupied squares as a bitboard (8 bytes), then the piece index of each occupied square
+ * from a1 upwards, 4 bits each (16 bytes), then the side to move (1 byte), padded with zeros to
+ * {@link #BYTES}. That holds 32 pieces, as many as a game from the default board ever has,
+ * since pawns never promote here.
+ */
+public final class PackedBoard {
+    public static final int BYTES = 32;
+    public static final int MAX_PIECES = 32;
+    private static final int PIECE_BYTES = MAX_PIECES / 2;
+    private static final int PADDING = BYTES - 8 - PIECE_BYTES - 1;
+    private static final byte BLACK_TO_MOVE = 1;
+
+    private PackedBoard() {
+    }
+
+    public static byte[] encode(Board board) {
+        byte[] bytes = new byte[BYTES];
+        encode(board, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes the board at the buffer's position and moves it on by BYTES.
+     */
+    public static void encode(Board board, ByteBuffer out) {
+        long occupied = board.getOccupied();
+        if(Bitboards.count(occupied) > MAX_PIECES)
+            throw new RuntimeException(String.format("Too many pieces to pack: %d", Bitboards.count(occupied)));
+        out.putLong(occupied);
+        int written = 0;
+        int pair = 0;
+        for(long remaining = occupied;remaining != Bitboards.EMPTY;remaining &= remaining - 1) {
+            int index = board.getPiece(Bitboards.lowest(remaining)).index;
+            if((written & 1) == 0) {
+                pair = index << 4;
+            } else {
+                out.put((byte) (pair | index));
+            }
+            written++;
+        }
+        if((written & 1) == 1)
+            out.put((byte) pair);
+        for(int id = (written + 1) / 2;id < PIECE_BYTES;id++)
+            out.put((byte) 0);
+        out.put(board.getTurn() == Color.BLACK ? BLACK_TO_MOVE : 0);
+        for(int id = 0;id < PADDING;id++)
+            out.put((byte) 0);
+    }
+
+    public static Board decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a board at the buffer's position and moves it on by BYTES.
+     */
+    public static Board decode(ByteBuffer in) {
+        int start = in.position();
+        Board board = new Board();
+        long occupied = in.getLong();
+        if(Bitboards.count(occupied) > MAX_PIECES)
+            throw new RuntimeException(String.format("Too many pieces to unpack: %d", Bitboards.count(occupied)));
+        int read = 0;
+        int pair = 0;
+        for(long remaining = occupied;remaining != Bitboards.EMPTY;remaining &= remaining - 1) {
+            if((read & 1) == 0)
+                pair = in.get();
+            int index = (read & 1) == 0 ? (pair >>> 4) & 0xF : pair & 0xF;
+            if(index >= Piece.COUNT)
+                throw new RuntimeException(String.format("Invalid packed piece: %d", index));
+            board.put(Bitboards.lowest(remaining), Piece.fromIndex(index));
+            read++;
+        }
+        in.position(start + 8 + PIECE_BYTES);
+        if(in.get() == BLACK_TO_MOVE)
+            board.setTurn(Color.BLACK);
+        in.position(start + BYTES);
+        return board;
+    }
+}
@@ -0,0 +1,102 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Lazy SMP: every thread runs its own {@link Search} on its own copy of the board, and they
+ * cooperate only through one shared {@link TranspositionTable}. Results one thread stores cut
+ * off or reorder the others' trees. The calling thread's search decides the move; once it is
+ * done the helpers are told to stop.
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final Search main;
+    private final Search[] helpers;
+    private final ExecutorService executor;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if(threads < 1)
+            throw new RuntimeException(String.format("Invalid thread count: %d", threads));
+        this.table = table;
+        main = new Search(table);
+        helpers = new Search[threads - 1];
+        for(int id = 0;id < helpers.length;id++) {
+            helpers[id] = new Search(table);
+            helpers[id].startDepth = 1 + (id + 1) % 2;
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, helpers.length), runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public Search.Result search(Board board, Color color, SearchLimits limits) {
+        return search(board, color, limits, null);
+    }
+
+    /**
+     * Searches with every thread and returns the calling thread's result, with nodes and nodes
+     * per second totalled over all threads.
+     */
+    public Search.Result search(Board board, Color color, SearchLimits limits, Consumer<Search.Result> listener) {
+        // a node limit is for all threads together
+        SearchLimits shared = limits.nodes == 0 ? limits : limits.withNodes(Math.max(1, limits.nodes / getThreads()));
+        List<Future<?>> running = new ArrayList<>(helpers.length);
+        for(Search helper:helpers) {
+            Board copy = board.copy();
+            helper.reset();
+            running.add(executor.submit(() -> helper.run(copy, color, shared, null)));
+        }
+        Search.Result result;
+        try {
+            result = main.search(board, color, shared, listener);
+        } finally {
+            for(Search helper:helpers)
+                helper.stop();
+        }
+        long nodes = result.nodes;
+        for(int id = 0;id < helpers.length;id++) {
+            try {
+                running.get(id).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for search threads", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("A search thread failed", e.getCause());
+            }
+            nodes += helpers[id].getNodes();
+        }
+        return new Search.Result(result.move, result.score, result.depth, nodes, result.millis, result.pv);
+    }
+
+    /**
+     * Stops the running search, if any, on every thread.
+     */
+    public void stop() {
+        main.stop();
+        for(Search helper:helpers)
+            helper.stop();
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,181 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaves of the legal move tree to a fixed depth. Checked against known counts it is
+ * the correctness oracle for move generation, and timed it is the throughput number for it.
+ *
+ * <pre>
+ *   Perft                   check every reference position, exit 1 on any mismatch
+ *   Perft verify            same, also checking the incremental hash and evaluation at every node
+ *   Perft depth [fen]       count one position, start position by default
+ *   Perft divide depth [fen] count per root move
+ * </pre>
+ */
+public class Perft {
+    /**
+     * Known counts per depth, starting at depth 1. This game has no castling, en passant or
+     * promotion, so apart from the start position (where none of those can happen before depth
+     * 5, and only en passant at 5) they differ from the usual published tables.
+     */
+    private static final Reference[] REFERENCES = {
+            new Reference("start", Fen.DEFAULT,
+                    20, 400, 8902, 197281, 4865351),
+            new Reference("kiwipete, no castling", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+                    46, 1865, 86585, 3488552),
+            new Reference("rook and pawn ending", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2810, 43087, 671300),
+            new Reference("pawn on the last rank", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w - - 0 1",
+                    40, 1349, 51751, 1758865),
+            new Reference("symmetrical middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 1",
+                    46, 2079, 89890, 3894594),
+            new Reference("four rooks (Board.createCMBoard)", "7k/7r/7r/7r/8/7r/8/K7 b - - 0 1",
+                    34, 87, 3572, 12919),
+            new Reference("bare kings", "7k/8/8/8/8/8/8/K7 w - - 0 1",
+                    3, 9, 54, 324, 1890),
+    };
+
+    private final MoveList[] moveLists = new MoveList[SearchLimits.MAX_DEPTH + 1];
+    private final boolean verify;
+
+    public Perft() {
+        this(false);
+    }
+
+    /**
+     * With verify set, every node's incrementally kept hash and evaluation are compared with
+     * ones computed from scratch, failing on the first that differs. Much slower, and counts come out the same.
+     */
+    public Perft(boolean verify) {
+        this.verify = verify;
+        for(int ply = 0;ply < moveLists.length;ply++)
+            moveLists[ply] = new MoveList();
+    }
+
+    public static void main(String[] args) {
+        Perft perft = new Perft();
+        if(args.length == 0) {
+            System.exit(perft.checkReferences(System.out) ? 0 : 1);
+        } else if(args[0].equals("verify")) {
+            System.exit(new Perft(true).checkReferences(System.out) ? 0 : 1);
+        } else if(args[0].equals("divide")) {
+            Board board = Fen.parse(args.length > 2 ? join(args, 2) : Fen.DEFAULT);
+            long total = 0;
+            for(Map.Entry<String, Long> entry:perft.divide(board, Integer.parseInt(args[1])).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println("Total: " + total);
+        } else {
+            Board board = Fen.parse(args.length > 1 ? join(args, 1) : Fen.DEFAULT);
+            for(int depth = 1;depth <= Integer.parseInt(args[0]);depth++)
+                perft.timed(board, depth, System.out);
+        }
+    }
+
+    /**
+     * Runs every reference position to its deepest known depth, printing counts and speed.
+     * Returns false if any count is wrong.
+     */
+    public boolean checkReferences(PrintStream out) {
+        boolean passed = true;
+        for(Reference reference:REFERENCES) {
+            out.println(reference.name + " - " + reference.fen);
+            Board board = Fen.parse(reference.fen);
+            for(int depth = 1;depth <= reference.counts.length;depth++) {
+                long nodes = timed(board, depth, out);
+                if(nodes != reference.counts[depth - 1]) {
+                    out.println(String.format("  MISMATCH at depth %d, expected %d", depth, reference.counts[depth - 1]));
+                    passed = false;
+                }
+            }
+        }
+        out.println(passed ? "All perft counts match." : "Perft counts DO NOT match!");
+        return passed;
+    }
+
+    public long perft(Board board, int depth) {
+        return depth == 0 ? 1 : perft(board, depth, 0);
+    }
+
+    /**
+     * Leaf counts below each legal root move, keyed by the move's squares (e.g. "e2e4").
+     */
+    public Map<String, Long> divide(Board board, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        MoveList moves = new MoveList();
+        board.generateMoves(board.getTurn(), true, moves);
+        for(int id = 0;id < moves.size();id++) {
+            int move = moves.get(id);
+            board.makeMove(move);
+            counts.put(squareName(Move.fromSquare(move)) + squareName(Move.toSquare(move)), perft(board, depth - 1));
+            board.unmakeMove();
+        }
+        return counts;
+    }
+
+    private long timed(Board board, int depth, PrintStream out) {
+        long start = System.nanoTime();
+        long nodes = perft(board, depth);
+        long nanos = Math.max(1, System.nanoTime() - start);
+        out.println(String.format("  depth %d: %12d nodes %8.1fms %,14d nps", depth, nodes, nanos / 1e6, nodes * 1000000000L / nanos));
+        return nodes;
+    }
+
+    private long perft(Board board, int depth, int ply) {
+        if(verify) {
+            verify(board);
+            // leaves are visited rather than counted in bulk, so they get checked too
+            if(depth == 0)
+                return 1;
+        }
+        MoveList moves = moveLists[ply];
+        int count = board.generateMoves(board.getTurn(), true, moves);
+        if(depth == 1 && false == verify)
+            return count;
+        long nodes = 0;
+        for(int id = 0;id < count;id++) {
+            board.makeMove(moves.get(id));
+            nodes += perft(board, depth - 1, ply + 1);
+            board.unmakeMove();
+        }
+        if(verify)
+            verify(board);
+        return nodes;
+    }
+
+    private static void verify(Board board) {
+        if(board.getHash() != Zobrist.hash(board))
+            throw new RuntimeException(String.format("Incremental hash is wrong at %s", Fen.write(board)));
+        if(board.evaluate(Color.WHITE) != Evaluation.evaluate(board, Color.WHITE))
+            throw new RuntimeException(String.format("Incremental evaluation is wrong at %s", Fen.write(board)));
+    }
+
+    private static String squareName(int square) {
+        return new String(new char[] { Position.X_TRANSLATION[Bitboards.x(square)], Position.Y_TRANSLATION[Bitboards.y(square)] });
+    }
+
+    private static String join(String[] args, int from) {
+        StringBuilder builder = new StringBuilder();
+        for(int id = from;id < args.length;id++)
+            builder.append(id == from ? "" : " ").append(args[id]);
+        return builder.toString();
+    }
+
+    private static class Reference {
+        private final String name;
+        private final String fen;
+        private final long[] counts;
+
+        private Reference(String name, String fen, long... counts) {
+            this.name = name;
+            this.fen = fen;
+            this.counts = counts;
+        }
+    }
+}
@@ -9,19 +9,51 @@ public class Piece {
 
     private static final char ENCODE_SEPARATOR = ',';
 
+    private static final Type[] TYPES = Type.values();
+    private static final Color[] COLORS = Color.values();
+    public static final int COUNT = TYPES.length * COLORS.length;
+    private static final Piece[] BY_INDEX = new Piece[COUNT];
+
+    static {
+        for(Color color:COLORS)
+            for(Type type:TYPES)
+                BY_INDEX[index(color, type)] = new Piece(color, type);
+    }
+
     public final Type type;
     public final Color color;
+    public final int index;
 
-    public Piece(Color color, Type type) {
-        if(type == null || color == null)
-            throw new RuntimeException(String.format(ERR_FMT_NULL, String.valueOf(type), String.valueOf(color)));
+    private Piece(Color color, Type type) {
         this.type = type;
         this.color = color;
+        this.index = index(color, type);
+    }
+
+    /**
+     * The shared instance for a color and type. There is only ever one of each, so pieces can
+     * be compared by identity.
+     */
+    public static Piece of(Color color, Type type) {
+        if(type == null || color == null)
+            throw new RuntimeException(String.format(ERR_FMT_NULL, String.valueOf(type), String.valueOf(color)));
+        return BY_INDEX[index(color, type)];
+    }
+
+    /**
+     * Dense 0 to COUNT-1 numbering of every color and type pair, used by bitboards and packed moves.
+     */
+    public static int index(Color color, Type type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
+    }
+
+    public static Piece fromIndex(int index) {
+        return BY_INDEX[index];
     }
 
     @Override
     public int hashCode() {
-        return type.hashCode() + 31*color.hashCode();
+        return index;
     }
 
     @Override
@@ -50,7 +82,7 @@ public class Piece {
         try {
             final Type type = Type.valueOf(split[0]);
             final Color color = Color.valueOf(split[1]);
-            return new Piece(color, type);
+            return of(color, type);
         } catch (Exception e) {
             throw new RuntimeException(String.format(ERR_FMT_ENC, encode), e);
         }
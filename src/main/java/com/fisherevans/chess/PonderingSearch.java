@@ -0,0 +1,148 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link Search} that can go on thinking during the opponent's turn. After playing a move it
+ * assumes the reply its principal variation predicts and searches the position after it on a
+ * background thread. If the opponent plays that reply the search just carries on, and the time
+ * already spent on it counts towards the next move. Any other reply stops it; the move it was
+ * working on is thrown away, though what it stored in the table may still help.
+ */
+public class PonderingSearch {
+    private final TranspositionTable table;
+    private final Search search;
+    private final ExecutorService executor;
+
+    private Future<Search.Result> pondering;
+    private int expected = Move.NONE;
+    private long ponderStart;
+    private boolean hit;
+    private long hits;
+    private long misses;
+
+    public PonderingSearch(TranspositionTable table) {
+        this.table = table;
+        search = new Search(table);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "search-ponder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position for color. If a ponder on this very position is running it is
+     * given whatever is left of limits.millis, counted from when it started, and its result
+     * returned; otherwise this is a plain search.
+     */
+    public Search.Result search(Board board, Color color, SearchLimits limits) {
+        if(pondering != null && hit) {
+            long left = limits.millis == 0 ? 0 : limits.millis - (System.nanoTime() - ponderStart) / 1000000L;
+            if(limits.millis != 0 && left <= 0)
+                search.stop();
+            return finishPonder(left);
+        }
+        stopPonder();
+        return search.search(board, color, limits);
+    }
+
+    /**
+     * Starts searching, for color, the position after the opponent answers with the expected
+     * move. The board is the position after color's own move and is not changed. The limits
+     * must include a time limit, so a ponder nobody collects still ends.
+     */
+    public void ponder(Board board, Color color, int expected, SearchLimits limits) {
+        stopPonder();
+        if(expected == Move.NONE || limits.millis == 0 || false == board.isLegal(expected))
+            return;
+        Board copy = board.copy();
+        copy.makeMove(expected);
+        this.expected = expected;
+        hit = false;
+        ponderStart = System.nanoTime();
+        search.reset();
+        if(table != null)
+            table.newSearch();
+        pondering = executor.submit(() -> search.run(copy, color, limits, null));
+    }
+
+    /**
+     * Tells the ponder, if any, which move the opponent actually played.
+     */
+    public void opponentMoved(int move) {
+        if(pondering == null)
+            return;
+        if(move == expected && false == hit) {
+            hit = true;
+            hits++;
+        } else {
+            misses++;
+            stopPonder();
+        }
+    }
+
+    /**
+     * Stops and forgets the ponder, if any.
+     */
+    public void stopPonder() {
+        if(pondering == null)
+            return;
+        search.stop();
+        finishPonder(0);
+    }
+
+    /**
+     * Asks the running search, pondering or not, to return as soon as possible. Safe to call
+     * from another thread.
+     */
+    public void stop() {
+        search.stop();
+    }
+
+    public long getPonderHits() {
+        return hits;
+    }
+
+    public long getPonderMisses() {
+        return misses;
+    }
+
+    /**
+     * Stops any ponder, waiting for it to let go of the table, and ends the background thread.
+     */
+    public void shutdown() {
+        stopPonder();
+        executor.shutdownNow();
+    }
+
+    // waits up to millis, or for as long as it takes if 0, then stops the ponder and returns its result
+    private Search.Result finishPonder(long millis) {
+        Future<Search.Result> running = pondering;
+        pondering = null;
+        expected = Move.NONE;
+        hit = false;
+        try {
+            if(millis > 0) {
+                try {
+                    return running.get(millis, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    search.stop();
+                }
+            }
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the ponder search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("The ponder search failed", e.getCause());
+        }
+    }
+}
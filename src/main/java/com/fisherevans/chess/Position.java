@@ -17,15 +17,36 @@ public class Position implements Serializable {
 
     private static final char ENCODE_SEPARATOR = ',';
 
+    private static final Position[] BY_INDEX = new Position[Bitboards.SQUARES];
+
+    static {
+        for(int index = 0;index < BY_INDEX.length;index++)
+            BY_INDEX[index] = new Position(Bitboards.x(index), Bitboards.y(index));
+    }
+
     public final int x, y;
+    public final int index;
+
+    private Position(int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.index = Bitboards.square(x, y);
+    }
 
-    public Position(int x, int y) {
+    /**
+     * The shared instance for a square. There is only ever one of each, so positions can be
+     * compared by identity.
+     */
+    public static Position of(int x, int y) {
         if(x < MIN_POSITION || x > MAX_POSITION)
             throw new RuntimeException(String.format(ERR_FMT_BOUND, MIN_POSITION, "x", x, MAX_POSITION));
         if(y < MIN_POSITION || y > MAX_POSITION)
             throw new RuntimeException(String.format(ERR_FMT_BOUND, MIN_POSITION, "y", y, MAX_POSITION));
-        this.x = x;
-        this.y = y;
+        return BY_INDEX[Bitboards.square(x, y)];
+    }
+
+    public static Position of(int index) {
+        return BY_INDEX[index];
     }
 
     public char getXChar() {
@@ -80,12 +101,16 @@ public class Position implements Serializable {
             if(ty == -1) {
                 throw new Exception("Invalid Y value!");
             }
-            return new Position(tx, ty);
+            return of(tx, ty);
         } catch (Exception e) {
             throw new RuntimeException(String.format(ERR_FMT_ENC, encoded), e);
         }
     }
 
+    private Object readResolve() {
+        return of(x, y);
+    }
+
     public static boolean inRange(int x, int y) {
         if(x < MIN_POSITION || x > MAX_POSITION)
             return false;
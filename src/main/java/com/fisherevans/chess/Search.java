@@ -0,0 +1,316 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.function.Consumer;
+
+/**
+ * Negamax alpha-beta search with iterative deepening. Each search deepens one ply at a time
+ * until a {@link SearchLimits} limit is hit and answers with the best move of the deepest
+ * finished iteration. Works on the board in place through make/unmake, so one instance must
+ * only be used by one thread at a time; several instances may share a
+ * {@link TranspositionTable} (see {@link ParallelSearch}).
+ */
+public class Search {
+    public static final int MATE = 100000;
+    public static final int INFINITY = MATE + 1;
+    private static final int MAX_PLY = SearchLimits.MAX_DEPTH + 1;
+    // how many nodes go by between clock reads
+    private static final int CHECK_INTERVAL = 1023;
+    // history scores are halved once any passes this, so recent cutoffs weigh more
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final TranspositionTable table;
+    private final MoveList rootMoves = new MoveList();
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    // two quiet moves per ply that last caused a cutoff there, tried early in sibling nodes
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[Piece.COUNT][Bitboards.SQUARES];
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private Board board;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopped;
+    // helper threads of a parallel search start deeper so they don't all walk the same tree
+    int startDepth = 1;
+
+    public Search() {
+        this(null);
+    }
+
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for(int ply = 0;ply < MAX_PLY;ply++)
+            pickers[ply] = new MovePicker(history);
+    }
+
+    public Result search(Board board, Color color, SearchLimits limits) {
+        return search(board, color, limits, null);
+    }
+
+    /**
+     * Searches the position for color. The listener, if given, hears about every finished
+     * iteration. The board is left exactly as it was passed in.
+     */
+    public Result search(Board board, Color color, SearchLimits limits, Consumer<Result> listener) {
+        stopped = false;
+        if(table != null)
+            table.newSearch();
+        return run(board, color, limits, listener);
+    }
+
+    /**
+     * Same as search, except that a stop requested before it started is still honored.
+     */
+    Result run(Board board, Color color, SearchLimits limits, Consumer<Result> listener) {
+        this.board = board;
+        Color turn = board.getTurn();
+        board.setTurn(color);
+        long start = System.nanoTime();
+        nodes = 0;
+        nodeLimit = limits.nodes == 0 ? Long.MAX_VALUE : limits.nodes;
+        deadline = limits.millis == 0 ? Long.MAX_VALUE : start + limits.millis * 1000000L;
+        for(int[] plyKillers:killers)
+            plyKillers[0] = plyKillers[1] = Move.NONE;
+        ageHistory();
+        pv[0][0] = Move.NONE;
+
+        board.generateMoves(color, true, rootMoves);
+        if(rootMoves.isEmpty()) {
+            board.setTurn(turn);
+            return new Result(Move.NONE, board.isChecked(color) ? -MATE : 0, 0, 0, elapsed(start), new int[0]);
+        }
+
+        Result result = new Result(rootMoves.get(0), 0, 0, 0, elapsed(start), new int[] { rootMoves.get(0) });
+        for(int depth = Math.min(startDepth, limits.depth);depth <= limits.depth && false == stopped;depth++) {
+            int score = negamax(color, depth, 0, -INFINITY, INFINITY);
+            if(stopped && pvLength[0] == 0)
+                break;
+            // an unfinished iteration still searched the previous best move first, so a root
+            // move it prefers was fully searched and proven better
+            int[] line = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, line, 0, line.length);
+            result = new Result(line[0], stopped ? result.score : score, stopped ? result.depth : depth,
+                    nodes, elapsed(start), line);
+            if(false == stopped && listener != null)
+                listener.accept(result);
+            if(Math.abs(score) >= MATE - MAX_PLY)
+                break;
+            // the next iteration would almost certainly not finish in the time left
+            if(limits.millis != 0 && elapsed(start) * 2 > limits.millis)
+                break;
+        }
+        // count the nodes of an iteration cut short too
+        if(result.nodes != nodes)
+            result = new Result(result.move, result.score, result.depth, nodes, elapsed(start), result.pv);
+        board.setTurn(turn);
+        this.board = null;
+        return result;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible. Safe to call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    void reset() {
+        stopped = false;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int negamax(Color color, int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if(++nodes >= nodeLimit || ((nodes & CHECK_INTERVAL) == 0 && System.nanoTime() >= deadline))
+            stopped = true;
+        if(stopped)
+            return 0;
+        if(depth == 0)
+            return quiesce(color, ply, alpha, beta);
+        if(ply == MAX_PLY - 1)
+            return board.evaluate(color);
+
+        long entry = table == null ? 0 : table.probe(board.getHash());
+        if(entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if(bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha))
+                return score;
+        }
+
+        int hashMove = entry == 0 ? Move.NONE : TranspositionTable.move(entry);
+        // at the root the previous iteration's best move goes first
+        if(ply == 0 && pv[0][0] != Move.NONE)
+            hashMove = pv[0][0];
+        MovePicker picker = pickers[ply];
+        picker.reset(board, color, hashMove, killers[ply][0], killers[ply][1]);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        for(int move = picker.next();move != Move.NONE;move = picker.next()) {
+            searched++;
+            board.makeMove(move);
+            int score = -negamax(color.opposite(), depth - 1, ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if(stopped)
+                return best;
+            if(score > best) {
+                best = score;
+                bestMove = move;
+                if(score > alpha) {
+                    alpha = score;
+                    pv[ply][0] = move;
+                    System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                    pvLength[ply] = pvLength[ply + 1] + 1;
+                    if(alpha >= beta) {
+                        if(false == Move.isCapture(move))
+                            rememberCutoff(move, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+        if(searched == 0)
+            return board.isChecked(color) ? -MATE + ply : 0;
+        if(table != null) {
+            int bound = best >= beta ? TranspositionTable.LOWER
+                    : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(board.getHash(), bestMove, toTable(best, ply), depth, bound);
+        }
+        return best;
+    }
+
+    /**
+     * Plays out captures until the position is quiet, so leaves aren't scored in the middle of
+     * an exchange. The side to move may stand pat on the static evaluation instead of capturing,
+     * except in check, where every evasion is searched. Captures that lose material by static
+     * exchange evaluation are skipped.
+     */
+    private int quiesce(Color color, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if(++nodes >= nodeLimit || ((nodes & CHECK_INTERVAL) == 0 && System.nanoTime() >= deadline))
+            stopped = true;
+        if(stopped)
+            return 0;
+        if(ply == MAX_PLY - 1)
+            return board.evaluate(color);
+
+        boolean checked = board.isChecked(color);
+        int best = -INFINITY;
+        MovePicker picker = pickers[ply];
+        if(checked) {
+            picker.reset(board, color, Move.NONE, Move.NONE, Move.NONE);
+        } else {
+            best = board.evaluate(color);
+            if(best >= beta)
+                return best;
+            alpha = Math.max(alpha, best);
+            picker.resetCaptures(board, color);
+        }
+
+        int searched = 0;
+        for(int move = picker.next();move != Move.NONE;move = picker.next()) {
+            searched++;
+            if(false == checked && board.see(move) < 0)
+                continue;
+            board.makeMove(move);
+            int score = -quiesce(color.opposite(), ply + 1, -beta, -alpha);
+            board.unmakeMove();
+            if(stopped)
+                return best;
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    if(alpha >= beta)
+                        break;
+                }
+            }
+        }
+        if(checked && searched == 0)
+            return -MATE + ply;
+        return best;
+    }
+
+    // mate scores are stored relative to the node, not the root, so they stay valid wherever the
+    // position turns up again
+    private static int toTable(int score, int ply) {
+        if(score >= MATE - MAX_PLY)
+            return score + ply;
+        if(score <= -MATE + MAX_PLY)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if(score >= MATE - MAX_PLY)
+            return score - ply;
+        if(score <= -MATE + MAX_PLY)
+            return score + ply;
+        return score;
+    }
+
+    private void rememberCutoff(int move, int depth, int ply) {
+        if(killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] scores = history[Move.piece(move).index];
+        scores[Move.toSquare(move)] += depth * depth;
+        if(scores[Move.toSquare(move)] > HISTORY_LIMIT)
+            ageHistory();
+    }
+
+    private void ageHistory() {
+        for(int[] scores:history)
+            for(int square = 0;square < scores.length;square++)
+                scores[square] /= 2;
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    public static class Result {
+        public final int move;
+        public final int score;
+        public final int depth;
+        public final long nodes;
+        public final long millis;
+        public final int[] pv;
+
+        public Result(int move, int score, int depth, long nodes, long millis, int[] pv) {
+            this.move = move;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.millis = millis;
+            this.pv = pv;
+        }
+
+        public Move getMove() {
+            return move == Move.NONE ? null : Move.unpack(move);
+        }
+
+        public long getNodesPerSecond() {
+            return millis == 0 ? nodes * 1000 : nodes * 1000 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth %d, score %d, %d nodes in %dms (%d nps)",
+                    depth, score, nodes, millis, getNodesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.fisherevans.chess;
+
+/**
+ * When a {@link Search} has to stop and return its best move so far. Any limit left at zero is
+ * not enforced; the first limit reached ends the search.
+ */
+public class SearchLimits {
+    public static final int MAX_DEPTH = 64;
+
+    public final long millis;
+    public final long nodes;
+    public final int depth;
+
+    public SearchLimits(long millis, long nodes, int depth) {
+        if(millis < 0 || nodes < 0 || depth < 0 || depth > MAX_DEPTH)
+            throw new RuntimeException(String.format("Invalid search limits. %dms, %d nodes, depth %d", millis, nodes, depth));
+        this.millis = millis;
+        this.nodes = nodes;
+        this.depth = depth == 0 ? MAX_DEPTH : depth;
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(millis, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(0, 0, depth);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(millis, nodes, depth);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(millis, nodes, depth);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(millis, nodes, depth);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%dms, %d nodes, depth %d", millis, nodes, depth);
+    }
+}
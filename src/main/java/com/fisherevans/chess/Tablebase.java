@@ -0,0 +1,204 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+import com.fisherevans.chess.Piece.Type;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Perfect play for endings with few pieces, looked up in memory mapped tables written by
+ * {@link TablebaseGenerator}. There is one table per material signature, such as "KRvK" for
+ * white king and rook against the black king, and one byte per position and side to move:
+ * {@link #DRAW}, or the number of plies to mate with best play plus 2, odd for a win for the
+ * side to move and even for a loss. A position with the colors the other way round is looked up
+ * in the mirrored table.
+ *
+ * The tables know nothing of the game's two draw counters: ChessGame calls a draw once more
+ * than 50 plies pass without a capture, and separately once more than 50 pass without a pawn
+ * move. A capture resets only the first, so a pawnless ending is drawn 50 plies after its last
+ * pawn move however many captures follow. Probed distances ignore both rules, so
+ * {@link GameIntelligence#withTablebase} may steer towards a mate the game calls drawn first.
+ */
+public class Tablebase {
+    public static final int MAX_PIECES = 4;
+    // probe result for positions no table covers
+    public static final int NONE = -1;
+    public static final int DRAW = 1;
+    static final int INVALID = 0;
+    static final String EXTENSION = ".tb";
+    static final int MAGIC = 0x43425442; // "CBTB"
+    static final int VERSION = 1;
+    // magic, version, signature padded with spaces
+    static final int HEADER_BYTES = 16;
+    private static final int SIGNATURE_BYTES = HEADER_BYTES - 8;
+    private static final String ERR_FMT_FILE = "Invalid tablebase file: %s";
+    private static final String ERR_FMT_SIGNATURE = "Invalid material signature: %s";
+    // signature order within each side
+    private static final Type[] TYPES = { Type.KING, Type.QUEEN, Type.ROOK, Type.BISHOP, Type.KNIGHT, Type.PAWN };
+
+    private final Map<String, Table> tables;
+
+    private Tablebase(Map<String, Table> tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Maps every table in the directory.
+     */
+    public static Tablebase open(Path directory) throws IOException {
+        Map<String, Table> tables = new HashMap<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for(Path file:files) {
+                try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    if(channel.size() < HEADER_BYTES)
+                        throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+                    ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    byte[] signature = new byte[SIGNATURE_BYTES];
+                    ((ByteBuffer) data.duplicate().position(8)).get(signature);
+                    Table table = new Table(new String(signature, StandardCharsets.US_ASCII).trim(), data);
+                    if(data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                            || data.capacity() != HEADER_BYTES + size(table.pieces.length))
+                        throw new RuntimeException(String.format(ERR_FMT_FILE, file));
+                    tables.put(table.signature, table);
+                }
+            }
+        }
+        return new Tablebase(tables);
+    }
+
+    public boolean contains(String signature) {
+        return tables.containsKey(signature);
+    }
+
+    /**
+     * The position's value for the side to move, or NONE if no table covers it.
+     */
+    public int probe(Board board) {
+        if(Bitboards.count(board.getOccupied()) > MAX_PIECES)
+            return NONE;
+        boolean mirrored = false;
+        Table table = tables.get(signature(board, false));
+        if(table == null) {
+            mirrored = true;
+            table = tables.get(signature(board, true));
+            if(table == null)
+                return NONE;
+        }
+        int value = table.data.get(HEADER_BYTES + (int) index(board, table.pieces, mirrored)) & 0xFF;
+        return value == INVALID ? NONE : value;
+    }
+
+    public static boolean isWin(int value) {
+        return value > DRAW && (value & 1) == 1;
+    }
+
+    public static boolean isLoss(int value) {
+        return value > DRAW && (value & 1) == 0;
+    }
+
+    /**
+     * Plies to mate with best play for a won or lost value.
+     */
+    public static int pliesToMate(int value) {
+        return value - 2;
+    }
+
+    /**
+     * How good a position with this value is for the side that just moved into it, for
+     * choosing between moves: quicker wins first, then draws (or NONE), then slower losses.
+     */
+    public static int rankForMover(int value) {
+        if(isLoss(value))
+            return 0x100 - pliesToMate(value);
+        if(isWin(value))
+            return pliesToMate(value) - 0x100;
+        return 0;
+    }
+
+    /**
+     * The signature of the material on the board, e.g. "KQvK", with colors swapped if mirrored.
+     */
+    static String signature(Board board, boolean mirrored) {
+        StringBuilder signature = new StringBuilder(MAX_PIECES + 1);
+        Color first = mirrored ? Color.BLACK : Color.WHITE;
+        for(Color color:new Color[] { first, first.opposite() }) {
+            if(color != first)
+                signature.append('v');
+            for(Type type:TYPES)
+                for(int count = Bitboards.count(board.getBitboard(color, type));count > 0;count--)
+                    signature.append(type.code);
+        }
+        return signature.toString();
+    }
+
+    /**
+     * The pieces of a signature, in the order their squares make up a table index.
+     */
+    static Piece[] pieces(String signature) {
+        int split = signature.indexOf('v');
+        if(split < 0 || signature.length() - 1 > MAX_PIECES || signature.lastIndexOf('v') != split)
+            throw new RuntimeException(String.format(ERR_FMT_SIGNATURE, signature));
+        Piece[] pieces = new Piece[signature.length() - 1];
+        for(int id = 0;id < pieces.length;id++) {
+            char code = signature.charAt(id < split ? id : id + 1);
+            Type type = null;
+            for(Type candidate:TYPES)
+                if(candidate.code == code)
+                    type = candidate;
+            if(type == null)
+                throw new RuntimeException(String.format(ERR_FMT_SIGNATURE, signature));
+            pieces[id] = Piece.of(id < split ? Color.WHITE : Color.BLACK, type);
+        }
+        if(false == signature.startsWith("K") || signature.charAt(split + 1) != 'K'
+                || signature.indexOf('K', 1) != split + 1 || signature.indexOf('K', split + 2) >= 0)
+            throw new RuntimeException(String.format(ERR_FMT_SIGNATURE, signature));
+        return pieces;
+    }
+
+    /**
+     * Entries in a table of this many pieces: every square for each piece, for either side to move.
+     */
+    static long size(int pieces) {
+        return 2L << (6 * pieces);
+    }
+
+    /**
+     * The side to move, then each piece's square in signature order. Pieces of the same kind
+     * take their squares lowest first, though the table holds every order.
+     */
+    static long index(Board board, Piece[] pieces, boolean mirrored) {
+        Color turn = mirrored ? board.getTurn().opposite() : board.getTurn();
+        long index = turn == Color.WHITE ? 0 : 1;
+        for(int id = 0;id < pieces.length;id++) {
+            Piece piece = pieces[id];
+            long bitboard = board.getBitboard(mirrored ? piece.color.opposite() : piece.color, piece.type);
+            for(int same = 0;same < id;same++)
+                if(pieces[same] == piece)
+                    bitboard &= bitboard - 1;
+            int square = Bitboards.lowest(bitboard);
+            index = (index << 6) | (mirrored ? square ^ 56 : square);
+        }
+        return index;
+    }
+
+    private static class Table {
+        private final String signature;
+        private final Piece[] pieces;
+        private final ByteBuffer data;
+
+        private Table(String signature, ByteBuffer data) {
+            this.signature = signature;
+            this.pieces = pieces(signature);
+            this.data = data;
+        }
+    }
+}
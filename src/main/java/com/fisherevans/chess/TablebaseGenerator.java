@@ -0,0 +1,265 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+import com.fisherevans.chess.Piece.Type;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds {@link Tablebase} tables by retrograde analysis. Mates are found first; after that
+ * pass n settles the positions that are n plies from mate: a win if some move leads to a loss
+ * in n - 1, a loss if every move leads to a win and the longest takes n - 1. Whatever is never
+ * settled is a draw. Captures lead into the tables of the smaller signatures, which are built
+ * first. Each pass is split over a pool of threads; entries settled during a pass are n plies
+ * from mate, which no other position can use until the next pass, so threads never wait on
+ * each other.
+ *
+ * Tables cover every placement without using symmetry, which keeps indexing trivial and is
+ * affordable up to {@link Tablebase#MAX_PIECES} pieces.
+ *
+ * <pre>
+ *   TablebaseGenerator directory signature...   e.g. tables KQvK KRvK KPvK KRvKR
+ * </pre>
+ */
+public class TablebaseGenerator {
+    // the most plies to mate a byte entry can hold
+    private static final int MAX_PLIES = 0xFF - 2;
+    // entries per task within a pass
+    private static final int CHUNK = 1 << 16;
+
+    private final int threads;
+    private final Map<String, byte[]> tables = new HashMap<>();
+    private final Set<String> written = new HashSet<>();
+
+    public TablebaseGenerator(int threads) {
+        if(threads < 1)
+            throw new RuntimeException(String.format("Invalid thread count: %d", threads));
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: TablebaseGenerator directory signature...");
+            System.exit(1);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Runtime.getRuntime().availableProcessors());
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        for(int id = 1;id < args.length;id++) {
+            long start = System.nanoTime();
+            generator.write(directory, args[id]);
+            System.out.println(String.format("%s in %dms", args[id], (System.nanoTime() - start) / 1000000L));
+        }
+    }
+
+    /**
+     * Builds the table, and those it depends on, then writes each one not written yet as
+     * signature + ".tb". Probing needs the smaller tables too, as captures lead into them.
+     */
+    public void write(Path directory, String signature) throws IOException {
+        generate(signature);
+        for(Map.Entry<String, byte[]> table:tables.entrySet())
+            if(written.add(table.getKey()))
+                write(directory, table.getKey(), table.getValue());
+    }
+
+    private static void write(Path directory, String signature, byte[] table) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+        header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION);
+        byte[] name = Arrays.copyOf(signature.getBytes(StandardCharsets.US_ASCII), Tablebase.HEADER_BYTES - 8);
+        for(int id = signature.length();id < name.length;id++)
+            name[id] = ' ';
+        header.put(name).flip();
+        try(FileChannel channel = FileChannel.open(directory.resolve(signature + Tablebase.EXTENSION),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(new ByteBuffer[] { header, ByteBuffer.wrap(table) });
+        }
+    }
+
+    /**
+     * The table for the signature, built along with those it depends on unless done before.
+     */
+    public byte[] generate(String signature) {
+        byte[] table = tables.get(signature);
+        if(table != null)
+            return table;
+        Piece[] pieces = Tablebase.pieces(signature);
+
+        // what is left after each piece is captured, and the longest mate found there
+        Map<Piece, Child> captures = new HashMap<>();
+        int longest = 0;
+        for(int id = 0;id < pieces.length;id++) {
+            if(pieces[id].type == Type.KING || captures.containsKey(pieces[id]))
+                continue;
+            StringBuilder smaller = new StringBuilder(signature);
+            smaller.deleteCharAt(id < signature.indexOf('v') ? id : id + 1);
+            byte[] child = generate(smaller.toString());
+            captures.put(pieces[id], new Child(Tablebase.pieces(smaller.toString()), child));
+            for(byte value:child)
+                longest = Math.max(longest, Tablebase.pliesToMate(value & 0xFF));
+        }
+
+        table = new byte[(int) Tablebase.size(pieces.length)];
+        Child same = new Child(pieces, table);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tablebase");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+            runPass(executor, workers, table.length, (worker, index) -> worker.initialize(index, same));
+            int settled = 1;
+            for(int plies = 1;settled > 0 || plies <= longest + 1;plies++) {
+                if(plies > MAX_PLIES)
+                    throw new RuntimeException(String.format("Mates in %s are too long to store", signature));
+                int target = plies;
+                settled = runPass(executor, workers, table.length, (worker, index) -> worker.settle(index, target, same, captures));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        tables.put(signature, table);
+        return table;
+    }
+
+    // runs the step for every index over the pool, returning how many it settled
+    private static int runPass(ExecutorService executor, ThreadLocal<Worker> workers, int size, Step step) {
+        try {
+            List<Future<Integer>> running = new ArrayList<>();
+            for(int first = 0;first < size;first += CHUNK) {
+                int from = first, to = Math.min(size, first + CHUNK);
+                running.add(executor.submit(() -> {
+                    Worker worker = workers.get();
+                    int settled = 0;
+                    for(int index = from;index < to;index++)
+                        if(step.run(worker, index))
+                            settled++;
+                    return settled;
+                }));
+            }
+            int settled = 0;
+            for(Future<Integer> future:running)
+                settled += future.get();
+            return settled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted generating a tablebase", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("A tablebase thread failed", e.getCause());
+        }
+    }
+
+    private interface Step {
+        boolean run(Worker worker, int index);
+    }
+
+    private static class Child {
+        private final Piece[] pieces;
+        private final byte[] table;
+
+        private Child(Piece[] pieces, byte[] table) {
+            this.pieces = pieces;
+            this.table = table;
+        }
+    }
+
+    /**
+     * A board and move list per thread, set up for one index at a time.
+     */
+    private static class Worker {
+        private final Board board = new Board();
+        private final MoveList moves = new MoveList();
+        private final int[] squares = new int[Tablebase.MAX_PIECES];
+
+        // entry from the position alone: invalid, mated, or draw until proven otherwise
+        private boolean initialize(int index, Child same) {
+            byte value = (byte) Tablebase.INVALID;
+            if(place(index, same.pieces)) {
+                Color turn = board.getTurn();
+                if(false == board.isChecked(turn.opposite())) {
+                    value = Tablebase.DRAW;
+                    if(board.generateMoves(turn, true, moves) == 0 && board.isChecked(turn))
+                        value = 2;
+                }
+                clear(same.pieces.length);
+            }
+            same.table[index] = value;
+            return false;
+        }
+
+        private boolean settle(int index, int plies, Child same, Map<Piece, Child> captures) {
+            if(same.table[index] != Tablebase.DRAW)
+                return false;
+            place(index, same.pieces);
+            int count = board.generateMoves(board.getTurn(), true, moves);
+            int quickestLoss = MAX_PLIES;
+            int longestWin = -1;
+            boolean allWin = true;
+            for(int id = 0;id < count;id++) {
+                int move = moves.get(id);
+                Child child = Move.isCapture(move) ? captures.get(Move.captured(move)) : same;
+                board.makeMove(move);
+                int value = child.table[(int) Tablebase.index(board, child.pieces, false)] & 0xFF;
+                board.unmakeMove();
+                if(Tablebase.isLoss(value)) {
+                    quickestLoss = Math.min(quickestLoss, Tablebase.pliesToMate(value));
+                    allWin = false;
+                } else if(Tablebase.isWin(value)) {
+                    longestWin = Math.max(longestWin, Tablebase.pliesToMate(value));
+                } else {
+                    allWin = false;
+                }
+            }
+            clear(same.pieces.length);
+            if(quickestLoss + 1 == plies || (allWin && count > 0 && longestWin + 1 == plies)) {
+                same.table[index] = (byte) (plies + 2);
+                return true;
+            }
+            return false;
+        }
+
+        // false if two pieces share a square or a pawn stands on its own first rank
+        private boolean place(int index, Piece[] pieces) {
+            long used = Bitboards.EMPTY;
+            for(int id = pieces.length - 1;id >= 0;id--) {
+                int square = index & 0x3F;
+                index >>>= 6;
+                squares[id] = square;
+                if(Bitboards.isSet(used, square))
+                    return false;
+                used |= Bitboards.bit(square);
+                if(pieces[id].type == Type.PAWN
+                        && Bitboards.y(square) == (pieces[id].color == Color.WHITE ? Position.MIN_POSITION : Position.MAX_POSITION))
+                    return false;
+            }
+            for(int id = 0;id < pieces.length;id++)
+                board.put(squares[id], pieces[id]);
+            board.setTurn(index == 0 ? Color.WHITE : Color.BLACK);
+            return true;
+        }
+
+        private void clear(int pieces) {
+            for(int id = 0;id < pieces;id++)
+                board.remove(squares[id]);
+        }
+    }
+}
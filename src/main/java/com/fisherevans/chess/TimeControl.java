@@ -0,0 +1,38 @@
+package com.fisherevans.chess;
+
+/**
+ * A chess clock setting: each side starts with the base time and gains the increment after
+ * every move it makes. A side whose clock runs out while thinking loses on time.
+ */
+public class TimeControl {
+    // share of the remaining time a move may take when no increment is coming back
+    private static final int MOVES_TO_PLAN_FOR = 30;
+
+    public final long baseMillis;
+    public final long incrementMillis;
+
+    private TimeControl(long baseMillis, long incrementMillis) {
+        this.baseMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    public static TimeControl of(long baseMillis, long incrementMillis) {
+        if(baseMillis <= 0 || incrementMillis < 0)
+            throw new RuntimeException(String.format("Invalid time control: %d+%d", baseMillis, incrementMillis));
+        return new TimeControl(baseMillis, incrementMillis);
+    }
+
+    /**
+     * How long an engine should think with this much left: a slice of the clock plus most of
+     * the increment, but never more than half of what's left.
+     */
+    public static long budget(long remainingMillis, long incrementMillis) {
+        long budget = remainingMillis / MOVES_TO_PLAN_FOR + incrementMillis * 3 / 4;
+        return Math.max(1, Math.min(budget, remainingMillis / 2));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d+%d", baseMillis, incrementMillis);
+    }
+}
@@ -0,0 +1,140 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Plays many independent games between two players over a pool of threads. Colors alternate
+ * with the game number, and each game draws its randomness from a seed derived only from the
+ * tournament seed and the game number, so totals don't depend on how games land on threads.
+ */
+public class Tournament {
+    public static final String DRAW = "Draw";
+
+    // spreads consecutive game numbers across the seed space
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final String firstName, secondName;
+    private final Function<Random, GameIntelligence> first, second;
+    private GameRecordWriter recorder;
+    private TimeControl timeControl;
+
+    public Tournament(String firstName, Function<Random, GameIntelligence> first,
+                      String secondName, Function<Random, GameIntelligence> second) {
+        if(firstName.equals(secondName) || DRAW.equals(firstName) || DRAW.equals(secondName))
+            throw new RuntimeException(String.format("Invalid player names: %s, %s", firstName, secondName));
+        this.firstName = firstName;
+        this.first = first;
+        this.secondName = secondName;
+        this.second = second;
+    }
+
+    /**
+     * Keeps every game played from now on, under the players' names. Flushing and closing the
+     * writer is left to the caller.
+     */
+    public Tournament record(GameRecordWriter recorder) {
+        this.recorder = recorder;
+        return this;
+    }
+
+    /**
+     * Plays every game from now on with the given clock, or untimed if null.
+     */
+    public Tournament timeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+        return this;
+    }
+
+    public Result play(int games, int threads, long seed) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return play(games, threads, executor, seed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays on a caller supplied executor, e.g. one running virtual threads. Workers is how many
+     * tasks to submit; each keeps claiming game numbers until all are played.
+     */
+    public Result play(int games, int workers, ExecutorService executor, long seed) {
+        LongAdder firstWins = new LongAdder(), secondWins = new LongAdder(), draws = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+        Future<?>[] running = new Future<?>[workers];
+        for(int id = 0;id < workers;id++) {
+            running[id] = executor.submit(() -> {
+                for(int game = next.getAndIncrement();game < games;game = next.getAndIncrement()) {
+                    Random random = new Random(seed + game * SEED_STEP);
+                    GameIntelligence firstPlayer = first.apply(new Random(random.nextLong()));
+                    GameIntelligence secondPlayer = second.apply(new Random(random.nextLong()));
+                    boolean firstIsWhite = game % 2 == 0;
+                    ChessGame chessGame = firstIsWhite
+                            ? new ChessGame(firstPlayer, secondPlayer, timeControl)
+                            : new ChessGame(secondPlayer, firstPlayer, timeControl);
+                    if(recorder != null)
+                        chessGame.addListener(firstIsWhite
+                                ? recorder.listener(firstName, secondName)
+                                : recorder.listener(secondName, firstName));
+                    chessGame.play();
+                    Color winner = chessGame.getWinner();
+                    if(winner == null)
+                        draws.increment();
+                    else if((winner == Color.WHITE) == firstIsWhite)
+                        firstWins.increment();
+                    else
+                        secondWins.increment();
+                }
+            });
+        }
+        for(Future<?> future:running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for games", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("A game failed", e.getCause());
+            }
+        }
+        return new Result(firstWins.sum(), secondWins.sum(), draws.sum());
+    }
+
+    public class Result {
+        public final long firstWins, secondWins, draws;
+
+        private Result(long firstWins, long secondWins, long draws) {
+            this.firstWins = firstWins;
+            this.secondWins = secondWins;
+            this.draws = draws;
+        }
+
+        public Map<String, Integer> toMap() {
+            Map<String, Integer> wins = new HashMap<>();
+            wins.put(firstName, (int) firstWins);
+            wins.put(secondName, (int) secondWins);
+            wins.put(DRAW, (int) draws);
+            return wins;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s won %d, %s won %d, %d draws", firstName, firstWins, secondName, secondWins, draws);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.fisherevans.chess;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size hash table of search results keyed by {@link Board#getHash()}, safe to share
+ * between search threads without locks. It lives off-heap in direct buffers, so even tables of
+ * several gigabytes add nothing for the garbage collector to trace.
+ *
+ * The table is split into 32 byte buckets of two slots. The first slot keeps the deepest
+ * result seen for its bucket, unless it is left over from an earlier search; everything else
+ * goes to the second slot, which is always overwritten. Each slot holds the key XORed with the
+ * packed entry plus the entry itself; a read is only trusted if XORing them back gives the
+ * probed key, so a slot torn by two threads writing at once just reads as a miss.
+ */
+public class TranspositionTable {
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    // entry layout: move (21 bits) | score + SCORE_OFFSET (18) | depth (7) | bound (2) | age (6)
+    private static final long MOVE_MASK = (1L << 21) - 1;
+    private static final int SCORE_SHIFT = 21;
+    private static final long SCORE_MASK = (1L << 18) - 1;
+    private static final int SCORE_OFFSET = 1 << 17;
+    private static final int DEPTH_SHIFT = 39;
+    private static final long DEPTH_MASK = (1L << 7) - 1;
+    private static final int BOUND_SHIFT = 46;
+    private static final int AGE_SHIFT = 48;
+    private static final long AGE_MASK = (1L << 6) - 1;
+
+    private static final int SLOT_BYTES = 16;
+    private static final int BUCKET_BYTES = 2 * SLOT_BYTES;
+    // a direct buffer is indexed by int, so big tables are split into chunks of this many bytes
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    private static final int USAGE_SAMPLE = 1000;
+    // default size tables handed back by engines done with a game, ready for the next one.
+    // Direct memory only comes back when the GC gets round to the buffers, so reuse is cheaper
+    private static final ConcurrentLinkedQueue<TranspositionTable> SPARE = new ConcurrentLinkedQueue<>();
+
+    private final ByteBuffer[] chunks;
+    private final long buckets;
+    private volatile int age;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    public TranspositionTable(int megabytes) {
+        if(megabytes <= 0)
+            throw new RuntimeException(String.format("Invalid table size: %dMB", megabytes));
+        buckets = Long.highestOneBit(megabytes * 1024L * 1024L / BUCKET_BYTES);
+        long bytes = buckets * BUCKET_BYTES;
+        chunks = new ByteBuffer[(int) ((bytes + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for(int id = 0;id < chunks.length;id++) {
+            long size = Math.min(bytes - ((long) id << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+            chunks[id] = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * An empty table of the default size, reusing a released one if there is one. Hand it back
+     * with release once nothing searches it any more.
+     */
+    public static TranspositionTable borrow() {
+        TranspositionTable table = SPARE.poll();
+        if(table == null)
+            return new TranspositionTable(DEFAULT_MEGABYTES);
+        table.clear();
+        return table;
+    }
+
+    /**
+     * Gives a table from borrow back to be reused. It must not be used afterwards.
+     */
+    public void release() {
+        SPARE.add(this);
+    }
+
+    /**
+     * The packed entry stored for the key, or 0 if there is none.
+     */
+    public long probe(long key) {
+        probes.increment();
+        long bucket = (key & (buckets - 1)) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int offset = (int) (bucket & CHUNK_MASK);
+        for(int slot = offset;slot < offset + BUCKET_BYTES;slot += SLOT_BYTES) {
+            long data = chunk.getLong(slot + 8);
+            if((chunk.getLong(slot) ^ data) == key) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = (key & (buckets - 1)) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int slot = (int) (bucket & CHUNK_MASK);
+        long current = age;
+        long data = (move & MOVE_MASK)
+                | ((long) (score + SCORE_OFFSET) & SCORE_MASK) << SCORE_SHIFT
+                | ((long) depth & DEPTH_MASK) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | current << AGE_SHIFT;
+
+        long preferred = chunk.getLong(slot + 8);
+        boolean sameKey = (chunk.getLong(slot) ^ preferred) == key;
+        if(false == sameKey && depth(preferred) > depth && age(preferred) == current)
+            slot += SLOT_BYTES;
+        chunk.putLong(slot, key ^ data);
+        chunk.putLong(slot + 8, data);
+    }
+
+    /**
+     * Marks everything stored so far as belonging to an earlier search, so it gives way to new
+     * results in the depth-preferred slots. Call once per move, not per thread.
+     */
+    public void newSearch() {
+        age = (int) ((age + 1) & AGE_MASK);
+    }
+
+    public void clear() {
+        for(ByteBuffer chunk:chunks)
+            for(int offset = 0;offset < chunk.capacity();offset += 8)
+                chunk.putLong(offset, 0);
+        age = 0;
+        resetStatistics();
+    }
+
+    public long getSizeInBytes() {
+        return buckets * BUCKET_BYTES;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        long probed = probes.sum();
+        return probed == 0 ? 0 : (double) hits.sum() / probed;
+    }
+
+    public void resetStatistics() {
+        probes.reset();
+        hits.reset();
+    }
+
+    /**
+     * Roughly how full the table is with results of the current search, in permille, judged
+     * from the first few buckets.
+     */
+    public int getUsage() {
+        long sample = Math.min(buckets, USAGE_SAMPLE);
+        int used = 0;
+        for(long bucket = 0;bucket < sample;bucket++) {
+            for(int slot = 0;slot < BUCKET_BYTES;slot += SLOT_BYTES) {
+                long data = chunks[0].getLong((int) (bucket * BUCKET_BYTES) + slot + 8);
+                if(data != 0 && age(data) == age)
+                    used++;
+            }
+        }
+        return (int) (used * 1000 / (sample * 2));
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int score(long entry) {
+        return (int) ((entry >>> SCORE_SHIFT) & SCORE_MASK) - SCORE_OFFSET;
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int age(long entry) {
+        return (int) ((entry >>> AGE_SHIFT) & AGE_MASK);
+    }
+}
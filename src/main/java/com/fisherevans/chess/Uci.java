@@ -0,0 +1,370 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Speaks the Universal Chess Interface, so standard GUIs and match tools can drive the engine.
+ * Understands uci, isready, ucinewgame, setoption (Hash and Threads), position (startpos or
+ * fen, then moves), go (wtime, btime, winc, binc, movetime, depth, nodes, infinite), stop and
+ * quit; anything else is ignored. Moves are written as their from and to squares, e.g. e2e4.
+ *
+ * Commands are read on the calling thread and every go is searched on another, so stop and
+ * isready are answered while the engine thinks. By default the built-in alpha-beta search plays
+ * and sends an info line for every finished iteration. Any other GameIntelligence can play
+ * instead: one is made for every game and initialized again on each go with the position and
+ * the clocks. Its own limits apply, no info lines are sent and stop is passed on to its stop
+ * method. A position or go sent while a search is running stops it first.
+ */
+public class Uci {
+    public static final String NAME = "fisherevans-chess";
+    private static final String AUTHOR = "Fisher Evans";
+    private static final int MAX_HASH_MEGABYTES = 1 << 16;
+    private static final int MAX_THREADS = 256;
+    private static final String NULL_MOVE = "0000";
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    // makes the engine for each game, or null for the built-in search
+    private final Supplier<GameIntelligence> engine;
+    private GameIntelligence player;
+    private final ExecutorService executor;
+
+    private int hashMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
+    private int threads = 1;
+    private TranspositionTable table;
+    private ParallelSearch search;
+    private Board board = Board.createDefaultBoard();
+    private Move lastMove;
+    private Future<?> running;
+    // holds back the best move of an infinite search until it is told to stop
+    private volatile CountDownLatch released;
+    private volatile GameIntelligence thinking;
+    private volatile boolean stopRequested;
+
+    public Uci(BufferedReader in, PrintStream out) {
+        this(in, out, null);
+    }
+
+    public Uci(BufferedReader in, PrintStream out, Supplier<GameIntelligence> engine) {
+        this.in = in;
+        this.out = out;
+        this.engine = engine;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "uci-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        Supplier<GameIntelligence> engine = null;
+        String name = args.length > 0 ? args[0] : "search";
+        switch (name) {
+            case "search": break;
+            case "montecarlo": {
+                SearchLimits limits = SearchLimits.nodes(args.length > 1 ? Long.parseLong(args[1]) : 20000);
+                engine = () -> GameIntelligence.monteCarlo(limits, Runtime.getRuntime().availableProcessors());
+                break;
+            }
+            case "greedy": engine = () -> GameIntelligence.greedy(new Random()); break;
+            case "dummy": engine = () -> GameIntelligence.dummy(new Random()); break;
+            default: {
+                System.out.println("Usage: Uci [search | montecarlo [playouts] | greedy | dummy]");
+                System.exit(1);
+            }
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        new Uci(in, System.out, engine).run();
+    }
+
+    /**
+     * Answers commands until quit or the end of input, then stops any search still running.
+     */
+    public void run() throws IOException {
+        try {
+            for(String line = in.readLine();line != null;line = in.readLine()) {
+                String[] tokens = line.trim().split("\\s+");
+                try {
+                    if(false == handle(tokens))
+                        break;
+                } catch (RuntimeException e) {
+                    send("info string " + e.getMessage());
+                }
+            }
+        } finally {
+            stopSearch();
+            if(search != null)
+                search.shutdown();
+            closePlayer();
+            executor.shutdownNow();
+        }
+    }
+
+    // false once told to quit
+    private boolean handle(String[] tokens) {
+        switch (tokens[0]) {
+            case "uci": {
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send(String.format("option name Hash type spin default %d min 1 max %d", TranspositionTable.DEFAULT_MEGABYTES, MAX_HASH_MEGABYTES));
+                send(String.format("option name Threads type spin default 1 min 1 max %d", MAX_THREADS));
+                send("uciok");
+                break;
+            }
+            case "isready": send("readyok"); break;
+            case "ucinewgame": {
+                stopSearch();
+                if(table != null)
+                    table.clear();
+                closePlayer();
+                break;
+            }
+            case "setoption": stopSearch(); setOption(tokens); break;
+            case "position": stopSearch(); position(tokens); break;
+            case "go": stopSearch(); go(tokens); break;
+            case "stop": stop(); break;
+            case "quit": return false;
+            default: break;
+        }
+        return true;
+    }
+
+    private void setOption(String[] tokens) {
+        int name = indexOf(tokens, "name"), value = indexOf(tokens, "value");
+        if(name < 0 || value < name)
+            throw new RuntimeException(String.format("Invalid option: %s", String.join(" ", tokens)));
+        String option = String.join(" ", Arrays.copyOfRange(tokens, name + 1, value));
+        int setting = value + 1 < tokens.length ? Integer.parseInt(tokens[value + 1]) : -1;
+        if("Hash".equalsIgnoreCase(option)) {
+            if(setting < 1 || setting > MAX_HASH_MEGABYTES)
+                throw new RuntimeException(String.format("Invalid hash size: %d", setting));
+            hashMegabytes = setting;
+            table = null;
+        } else if("Threads".equalsIgnoreCase(option)) {
+            if(setting < 1 || setting > MAX_THREADS)
+                throw new RuntimeException(String.format("Invalid thread count: %d", setting));
+            threads = setting;
+        } else {
+            throw new RuntimeException(String.format("Unknown option: %s", option));
+        }
+        // made again with the new settings on the next go
+        if(search != null)
+            search.shutdown();
+        search = null;
+    }
+
+    private void position(String[] tokens) {
+        int moves = indexOf(tokens, "moves");
+        int end = moves < 0 ? tokens.length : moves;
+        Board position;
+        if(tokens.length > 1 && tokens[1].equals("startpos"))
+            position = Board.createDefaultBoard();
+        else if(tokens.length > 1 && tokens[1].equals("fen"))
+            position = Fen.parse(String.join(" ", Arrays.copyOfRange(tokens, 2, end)));
+        else
+            throw new RuntimeException(String.format("Invalid position: %s", String.join(" ", tokens)));
+        Move previous = null;
+        MoveList available = new MoveList();
+        for(int id = moves + 1;moves >= 0 && id < tokens.length;id++) {
+            int move = parseMove(position, tokens[id], available);
+            position.makeMove(move);
+            previous = Move.unpack(move);
+        }
+        board = position;
+        lastMove = previous;
+    }
+
+    private void go(String[] tokens) {
+        long whiteMillis = 0, blackMillis = 0, whiteIncrement = 0, blackIncrement = 0, millis = 0, nodes = 0;
+        int depth = 0;
+        boolean infinite = false;
+        for(int id = 1;id < tokens.length;id++) {
+            String value = id + 1 < tokens.length ? tokens[id + 1] : "0";
+            switch (tokens[id]) {
+                case "wtime": whiteMillis = Math.max(1, Long.parseLong(value)); id++; break;
+                case "btime": blackMillis = Math.max(1, Long.parseLong(value)); id++; break;
+                case "winc": whiteIncrement = Long.parseLong(value); id++; break;
+                case "binc": blackIncrement = Long.parseLong(value); id++; break;
+                case "movetime": millis = Long.parseLong(value); id++; break;
+                case "nodes": nodes = Long.parseLong(value); id++; break;
+                case "depth": depth = Math.min(SearchLimits.MAX_DEPTH, Integer.parseInt(value)); id++; break;
+                case "infinite": infinite = true; break;
+                default: break;
+            }
+        }
+        Color turn = board.getTurn();
+        long own = turn == Color.WHITE ? whiteMillis : blackMillis;
+        long opponent = turn == Color.WHITE ? blackMillis : whiteMillis;
+        long increment = turn == Color.WHITE ? whiteIncrement : blackIncrement;
+        if(millis == 0 && own > 0)
+            millis = TimeControl.budget(own, increment);
+        SearchLimits limits = infinite ? new SearchLimits(0, 0, depth) : new SearchLimits(millis, nodes, depth);
+
+        if(engine != null && player == null)
+            player = engine.get();
+        if(engine == null && search == null) {
+            if(table == null)
+                table = new TranspositionTable(hashMegabytes);
+            search = new ParallelSearch(threads, table);
+        }
+        Board position = board.copy();
+        Move previous = lastMove;
+        GameIntelligence current = player;
+        CountDownLatch release = new CountDownLatch(infinite ? 1 : 0);
+        released = release;
+        stopRequested = false;
+        running = executor.submit(() -> think(current, position, previous, limits, own, opponent, increment, release));
+    }
+
+    // runs on the search thread
+    private void think(GameIntelligence current, Board position, Move previous, SearchLimits limits,
+                       long own, long opponent, long increment, CountDownLatch release) {
+        int move = Move.NONE;
+        try {
+            if(engine == null) {
+                move = search.search(position, position.getTurn(), limits, this::info).move;
+            } else {
+                move = think(current, position, previous, own, opponent, increment);
+            }
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send("info string " + e.getMessage());
+        }
+        send("bestmove " + (move == Move.NONE ? NULL_MOVE : moveText(move)));
+    }
+
+    private int think(GameIntelligence player, Board position, Move previous, long own, long opponent, long increment) {
+        Color turn = position.getTurn();
+        player.initialize(position.copy(), turn);
+        if(own > 0)
+            player.clockUpdated(own, opponent, increment);
+        thinking = player;
+        try {
+            // a stop that came in before the player was ready
+            if(stopRequested)
+                player.stop();
+            Move move = player.calculateMove(previous, position.getAvailableMoves(turn, true));
+            return move == null ? Move.NONE : move.pack();
+        } finally {
+            thinking = null;
+        }
+    }
+
+    private void info(Search.Result result) {
+        // a stop can land before the search has cleared its flag; it is caught here instead
+        if(stopRequested)
+            search.stop();
+        StringBuilder line = new StringBuilder("info");
+        line.append(" depth ").append(result.depth);
+        line.append(" score ").append(scoreText(result.score));
+        line.append(" nodes ").append(result.nodes);
+        line.append(" nps ").append(result.getNodesPerSecond());
+        line.append(" time ").append(result.millis);
+        line.append(" hashfull ").append(table.getUsage());
+        line.append(" pv");
+        for(int move:result.pv)
+            line.append(' ').append(moveText(move));
+        send(line.toString());
+    }
+
+    private void stop() {
+        stopRequested = true;
+        ParallelSearch current = search;
+        if(current != null)
+            current.stop();
+        GameIntelligence player = thinking;
+        if(player != null)
+            player.stop();
+        CountDownLatch release = released;
+        if(release != null)
+            release.countDown();
+    }
+
+    private void closePlayer() {
+        if(player != null)
+            player.close();
+        player = null;
+    }
+
+    private void stopSearch() {
+        if(running == null)
+            return;
+        stop();
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the search", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("The search failed", e.getCause());
+        } finally {
+            running = null;
+        }
+    }
+
+    private void send(String line) {
+        synchronized(out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    private static int parseMove(Board position, String text, MoveList available) {
+        // a fifth letter would be a promotion, which this game doesn't have
+        if(text.length() != 4)
+            throw new RuntimeException(String.format("Invalid move: %s", text));
+        int from = parseSquare(text, 0), to = parseSquare(text, 2);
+        position.generateMoves(position.getTurn(), true, available);
+        for(int id = 0;id < available.size();id++) {
+            int move = available.get(id);
+            if(Move.fromSquare(move) == from && Move.toSquare(move) == to)
+                return move;
+        }
+        throw new RuntimeException(String.format("Illegal move: %s", text));
+    }
+
+    private static int parseSquare(String text, int at) {
+        int x = text.charAt(at) - 'a', y = text.charAt(at + 1) - '1';
+        if(false == Position.inRange(x, y))
+            throw new RuntimeException(String.format("Invalid move: %s", text));
+        return Bitboards.square(x, y);
+    }
+
+    static String moveText(int move) {
+        int from = Move.fromSquare(move), to = Move.toSquare(move);
+        return new String(new char[] {
+                Position.X_TRANSLATION[from & 7], Position.Y_TRANSLATION[from >>> 3],
+                Position.X_TRANSLATION[to & 7], Position.Y_TRANSLATION[to >>> 3] });
+    }
+
+    // centipawns, or moves to mate
+    private static String scoreText(int score) {
+        int plies = Search.MATE - Math.abs(score);
+        if(plies > SearchLimits.MAX_DEPTH + 1)
+            return "cp " + score;
+        return "mate " + (score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+    }
+
+    private static int indexOf(String[] tokens, String token) {
+        for(int id = 0;id < tokens.length;id++)
+            if(tokens[id].equals(token))
+                return id;
+        return -1;
+    }
+}
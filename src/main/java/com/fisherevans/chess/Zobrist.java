@@ -0,0 +1,45 @@
+package com.fisherevans.chess;
+
+import com.fisherevans.chess.Piece.Color;
+
+import java.util.Random;
+
+/**
+ * Random keys for Zobrist hashing. A position's hash is the XOR of the key for every piece on
+ * its square, plus BLACK_TO_MOVE when it is black's turn, so a move only touches a few keys.
+ */
+public final class Zobrist {
+    // fixed so hashes are stable between runs and can be stored on disk
+    private static final long SEED = 0x3C6EF372FE94F82BL;
+
+    private static final long[][] PIECES = new long[Piece.COUNT][Bitboards.SQUARES];
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(SEED);
+        for(long[] keys:PIECES)
+            for(int square = 0;square < Bitboards.SQUARES;square++)
+                keys[square] = random.nextLong();
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECES[piece][square];
+    }
+
+    /**
+     * Computes the key from scratch. Only meant for checking the incrementally kept one.
+     */
+    public static long hash(Board board) {
+        long hash = board.getTurn() == Color.BLACK ? BLACK_TO_MOVE : Bitboards.EMPTY;
+        for(int square = 0;square < Bitboards.SQUARES;square++) {
+            Piece piece = board.getPiece(square);
+            if(piece != null)
+                hash ^= piece(piece.index, square);
+        }
+        return hash;
+    }
+}